@@ -2,6 +2,7 @@ package ca.uwaterloo.cs.streamingrpq.runtime;
 
 import ca.uwaterloo.cs.streamingrpq.input.*;
 import ca.uwaterloo.cs.streamingrpq.stree.engine.RPQEngine;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.WindowedRPQ;
 import ca.uwaterloo.cs.streamingrpq.stree.query.Automata;
 import ca.uwaterloo.cs.streamingrpq.stree.util.Constants;
 import ca.uwaterloo.cs.streamingrpq.stree.util.Semantics;
@@ -40,6 +41,8 @@ public class SPARQLQueryRunner {
         Long startTimestamp = Long.parseLong(line.getOptionValue("st", "0"));
         Integer threadCount = Integer.parseInt(line.getOptionValue("tc", "1"));
         Integer deletionPercentage = Integer.parseInt(line.getOptionValue("dr", "0"));
+        boolean offHeapProductGraph = line.hasOption("oh");
+        boolean compactTrees = line.hasOption("ct");
 
         String semantics = line.getOptionValue("ps");
         Semantics pathSemantics = Semantics.fromValue(semantics);
@@ -71,7 +74,7 @@ public class SPARQLQueryRunner {
                 stream = new Yago2sTSVStream();
         }
 
-        RPQEngine<String> rpq;
+        WindowedRPQ<String, ?, ?> rpq;
         Automata<String> query;
 
         try {
@@ -81,7 +84,10 @@ public class SPARQLQueryRunner {
             return;
         }
 
-        rpq = RPQEngine.<String>createWindowedRPQEngine(query, maxSize, windowSize, slideSize, threadCount, pathSemantics);
+        rpq = RPQEngine.<String>createWindowedRPQEngine(query, maxSize, windowSize, slideSize, threadCount, pathSemantics, offHeapProductGraph);
+        if (compactTrees) {
+            rpq.setCompactTrees(true);
+        }
 
         // initialize and prepare the input stream for consumption
         stream.open(filename, inputSize, startTimestamp, deletionPercentage);
@@ -152,6 +158,8 @@ public class SPARQLQueryRunner {
         options.addOption("st", "start-timestamp", true, "Starting timestamp, 0 by default");
         options.addOption("tc", "threadCount", true, "# of Threads for inter-query parallelism");
         options.addOption("dr", "deleteRatio", true, "percentage of deletions in the stream");
+        options.addOption("oh", "off-heap", false, "store the product graph in direct memory instead of the Java heap");
+        options.addOption("ct", "compact-trees", false, "store the spanning trees in primitive arrays instead of an object per node, arbitrary semantics only");
 
         return options;
     }
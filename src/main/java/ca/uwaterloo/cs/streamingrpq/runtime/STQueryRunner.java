@@ -16,6 +16,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -45,6 +46,9 @@ public class STQueryRunner {
         Long startTimestamp = Long.parseLong(line.getOptionValue("st", "0"));
         Integer threadCount = Integer.parseInt(line.getOptionValue("tc", "1"));
         Integer deletionPercentage = Integer.parseInt(line.getOptionValue("dr", "0"));
+        boolean offHeapProductGraph = line.hasOption("oh");
+        boolean compactTrees = line.hasOption("ct");
+        Integer bulkLoadSize = Integer.parseInt(line.getOptionValue("bl", "0"));
 
         // optional parameters for single source RPQ evaluation
         Boolean allPairs = Boolean.parseBoolean(line.getOptionValue("ap", "true"));
@@ -80,7 +84,7 @@ public class STQueryRunner {
                 stream = new Yago2sTSVStream();
         }
 
-        RPQEngine rpq;
+        WindowedRPQ<String, ?, ?> rpq;
         ManualQueryAutomata<String> query;
         try {
             query = MazeQueries.getMazeQuery(queryName, predicateString);
@@ -93,7 +97,10 @@ public class STQueryRunner {
         if (!allPairs) {
             rpq = RPQEngine.createWindowedRPQEngine(query, maxSize, windowSize, slideSize, allPairs, sourceVertex);
         } else {
-            rpq = RPQEngine.<String>createWindowedRPQEngine(query, maxSize, windowSize, slideSize, threadCount, pathSemantics);
+            rpq = RPQEngine.<String>createWindowedRPQEngine(query, maxSize, windowSize, slideSize, threadCount, pathSemantics, offHeapProductGraph);
+        }
+        if (compactTrees) {
+            rpq.setCompactTrees(true);
         }
 
         stream.open(filename, inputSize, startTimestamp, deletionPercentage);
@@ -108,6 +115,32 @@ public class STQueryRunner {
         reporter.start(1, TimeUnit.SECONDS);
 
         try {
+            if (bulkLoadSize > 0) {
+                // initialize the engine with the first tuples of the stream as a historical window
+                logger.info("Bulk loading first " + bulkLoadSize + " tuples for query " + queryName);
+                rpq.bulkLoad(new Iterator<InputTuple<Integer, Integer, String>>() {
+                    private int count = 0;
+                    private InputTuple<Integer, Integer, String> next = null;
+
+                    @Override
+                    public boolean hasNext() {
+                        // stream reuses the same tuple object, so the next tuple can only be read once the previous one is consumed
+                        if (next == null && count < bulkLoadSize) {
+                            next = stream.next();
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public InputTuple<Integer, Integer, String> next() {
+                        InputTuple<Integer, Integer, String> current = next;
+                        next = null;
+                        count++;
+                        return current;
+                    }
+                });
+            }
+
             InputTuple<Integer, Integer, String> input = stream.next();
             logger.info("Query " + queryName + " is starting!");
 
@@ -156,6 +189,9 @@ public class STQueryRunner {
         options.addOption("st", "start-timestamp", true, "Starting timestamp, 0 by default");
         options.addOption("tc", "threadCount", true, "# of Threads for inter-query parallelism");
         options.addOption("dr", "deleteRatio", true, "percentage of deletions in the stream");
+        options.addOption("oh", "off-heap", false, "store the product graph in direct memory instead of the Java heap");
+        options.addOption("ct", "compact-trees", false, "store the spanning trees in primitive arrays instead of an object per node, arbitrary semantics only");
+        options.addOption("bl", "bulk-load", true, "# of tuples from the beginning of the stream to be bulk loaded as the initial window");
 
         Option labelOption = new Option("l", "labels", true, "list of labels in order");
         labelOption.setArgs(Option.UNLIMITED_VALUES);
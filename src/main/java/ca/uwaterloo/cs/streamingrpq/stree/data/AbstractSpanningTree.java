@@ -30,7 +30,7 @@ public abstract class AbstractSpanningTree<V, T extends AbstractSpanningTree<V,
 
     protected AbstractSpanningTree(long timestamp, Delta<V, T, N> delta) {
         this.minTimestamp = timestamp;
-        this.nodeIndex = HashMultimap.create(Constants.EXPECTED_TREE_SIZE, Constants.EXPECTED_LABELS);
+        this.nodeIndex = HashMultimap.create(Constants.EXPECTED_TREE_SIZE, Constants.EXPECTED_NODES_PER_PAIR);
         this.delta = delta;
 
         candidates = new HashSet<>(Constants.EXPECTED_TREE_SIZE);
@@ -38,6 +38,18 @@ public abstract class AbstractSpanningTree<V, T extends AbstractSpanningTree<V,
         visited = new HashSet<>(Constants.EXPECTED_TREE_SIZE);
     }
 
+    /**
+     * Creates a tree without allocating the node index and the sets used by the maintenance.
+     * Only used by implementations that store their nodes in an alternative storage, and override every method that
+     * accesses them
+     * @param delta
+     * @param timestamp
+     */
+    protected AbstractSpanningTree(Delta<V, T, N> delta, long timestamp) {
+        this.minTimestamp = timestamp;
+        this.delta = delta;
+    }
+
     public int getSize() {
         return nodeIndex.size();
     }
@@ -85,12 +97,23 @@ public abstract class AbstractSpanningTree<V, T extends AbstractSpanningTree<V,
         }
     }
 
+    /**
+     * Recycles the nodes that are returned by a maintenance of this tree. Must be called once the caller does not
+     * reference them anymore, as recycled nodes are reinitialized in place, and before the next maintenance of the tree
+     * @param removedNodes
+     */
+    public void releaseNodes(Collection<N> removedNodes) {
+        for(N removedNode : removedNodes) {
+            delta.getObjectFactory().releaseTreeNode(removedNode);
+        }
+    }
+
     /**
      * removes old edges from the productGraph, used during window management.
      * This function assumes that expired edges are removed from the productGraph, so traversal assumes that it is guarenteed to
      * traverse valid edges
      * @param minTimestamp lower bound of the window interval. Any edge whose timestamp is smaller will be removed
-     * @return The set of nodes that have expired from the window as there is no other path
+     * @return The set of nodes that have expired from the window as there is no other path, see {@link #releaseNodes(Collection)}
      */
     public <L> Collection<N> removeOldEdges(long minTimestamp, ProductGraph<V,L> productGraph) {
         // if root is expired (root node timestamp is its youngest edge), then the entire tree needs to be removed
@@ -121,22 +144,22 @@ public abstract class AbstractSpanningTree<V, T extends AbstractSpanningTree<V,
                 continue;
             }
             //check if there exists any incoming edge from a valid state
-            Collection<GraphEdge<ProductGraphNode<V>>> backwardEdges = productGraph.getBackwardEdges(candidate.getVertex(), candidate.getState());
+            EdgeCursor<V> backwardEdges = productGraph.getBackwardEdgeCursor(candidate.getVertex(), candidate.getState());
             N newParent = null;
-            GraphEdge<ProductGraphNode<V>> newParentEdge = null;
-            for(GraphEdge<ProductGraphNode<V>> backwardEdge : backwardEdges) {
-                Collection<N> newParents = this.getNodes(backwardEdge.getSource().getVertex(), backwardEdge.getSource().getState());
+            long newParentEdgeTimestamp = 0;
+            while(backwardEdges.next()) {
+                Collection<N> newParents = this.getNodes(backwardEdges.getVertex(), backwardEdges.getState());
                 // candidate is a marked node, therefore these edges cannot form a cycle or register conflict
                 for(N newParentCandidate : newParents) {
                     if (!candidates.contains(newParentCandidate) || candidateRemoval.contains(newParentCandidate)) {
                         // there is an incoming edge with valid source
                         // source is valid (in the tree) and not in candidate
                         newParent = newParentCandidate;
-                        newParentEdge = backwardEdge;
+                        newParentEdgeTimestamp = backwardEdges.getTimestamp();
                         break;
                     }
                 }
-                if(newParentEdge != null) {
+                if(newParent != null) {
                     // a valid backward edge is found
                     break;
                 }
@@ -146,10 +169,10 @@ public abstract class AbstractSpanningTree<V, T extends AbstractSpanningTree<V,
             // be an incoming edge of some candidate, then it is removed from candidate so I never check it there.
             // If that edge is checked during incoming edge search, than it might be only examined again with a traversal which makes sure
             // that edge cannot be visited again. Therefore it is O(m)
-            if(newParentEdge != null) {
+            if(newParent != null) {
                 // means that there was a tree node that is not in the candidates but in the tree as a valid node
                 candidate.setParent(newParent);
-                candidate.setTimestamp(Long.min(newParent.getTimestamp(), newParentEdge.getTimestamp()));
+                candidate.setTimestamp(Long.min(newParent.getTimestamp(), newParentEdgeTimestamp));
                 // current vertex has a valid incoming edge, so it needs to be removed from candidates
                 candidateRemoval.add(candidate);
 
@@ -162,23 +185,24 @@ public abstract class AbstractSpanningTree<V, T extends AbstractSpanningTree<V,
                     N currentVertex = traversalQueue.remove();
                     visited.add(currentVertex);
 
-                    Collection<GraphEdge<ProductGraphNode<V>>> forwardEdges = productGraph.getForwardEdges(currentVertex.getVertex(), currentVertex.getState());
+                    EdgeCursor<V> forwardEdges = productGraph.getForwardEdgeCursor(currentVertex.getVertex(), currentVertex.getState());
                     // for each potential child
-                    for(GraphEdge<ProductGraphNode<V>> forwardEdge : forwardEdges) {
+                    while(forwardEdges.next()) {
+                        long forwardEdgeTimestamp = forwardEdges.getTimestamp();
                         // I can simply retrieve from the tree index because any node that is reachable are in tree index
-                        Collection<N> outgoingTreeNodes = this.getNodes(forwardEdge.getTarget().getVertex(), forwardEdge.getTarget().getState());
+                        Collection<N> outgoingTreeNodes = this.getNodes(forwardEdges.getVertex(), forwardEdges.getState());
                         for (N outgoingTreeNode : outgoingTreeNodes) {
                             // there exists such node in the tree & the edge we are traversing is valid & this node has not been visited before
-                            if (forwardEdge.getTimestamp() > minTimestamp && !visited.contains(outgoingTreeNode)) {
+                            if (forwardEdgeTimestamp > minTimestamp && !visited.contains(outgoingTreeNode)) {
                                 if (candidates.contains(outgoingTreeNode)) {
                                     // remove this node from potentials as now there is a younger path
                                     candidateRemoval.add(outgoingTreeNode);
                                 }
-                                if (outgoingTreeNode.getTimestamp() < Long.min(currentVertex.getTimestamp(), forwardEdge.getTimestamp())) {
+                                if (outgoingTreeNode.getTimestamp() < Long.min(currentVertex.getTimestamp(), forwardEdgeTimestamp)) {
                                     // note anything in the candidates has a lower timestamp then
                                     // min(currentVertex, forwardEdge) as currentVertex and forward edge are guarenteed to be larger than minTimestamp
                                     outgoingTreeNode.setParent(currentVertex);
-                                    outgoingTreeNode.setTimestamp(Long.min(currentVertex.getTimestamp(), forwardEdge.getTimestamp()));
+                                    outgoingTreeNode.setTimestamp(Long.min(currentVertex.getTimestamp(), forwardEdgeTimestamp));
                                     traversalQueue.add(outgoingTreeNode);
                                 }
                             }
@@ -203,7 +227,6 @@ public abstract class AbstractSpanningTree<V, T extends AbstractSpanningTree<V,
         }
 
         if(this.isExpired(minTimestamp)) {
-            N removedTuple = this.getRootNode();
             delta.removeTree((T) this);
         }
 
@@ -244,8 +267,12 @@ public abstract class AbstractSpanningTree<V, T extends AbstractSpanningTree<V,
      * @return <code>true</> if there is no active edge from the root node
      */
     public boolean isExpired(long minTimestamp) {
-        boolean expired = rootNode.getChildren().stream().allMatch(c -> c.getTimestamp() <= minTimestamp);
-        return expired;
+        for(N child = rootNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if(child.getTimestamp() > minTimestamp) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -1,8 +1,9 @@
 package ca.uwaterloo.cs.streamingrpq.stree.data;
 
+import java.util.AbstractCollection;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public abstract class AbstractTreeNode<V, T extends AbstractSpanningTree<V, T, N>, N extends AbstractTreeNode<V, T, N>> {
 
@@ -10,17 +11,35 @@ public abstract class AbstractTreeNode<V, T extends AbstractSpanningTree<V, T, N
     protected int state;
     protected long timestamp;
     protected N parent;
-    protected Collection<N> children;
+
+    // children are kept in an intrusive doubly linked list so that re-parenting is constant time without allocation
+    protected N firstChild;
+    protected N previousSibling;
+    protected N nextSibling;
 
     protected AbstractTreeNode(V vertex, int state, N parent, long timestamp) {
         this.vertex = vertex;
         this.state = state;
         this.parent = parent;
-        this.children = Collections.newSetFromMap(new ConcurrentHashMap<N, Boolean>());;
         this.timestamp = timestamp;
+    }
 
-
-
+    /**
+     * Resets a removed node so that its object can be reused for a new tree node.
+     * The node must not be linked to a parent or have any children
+     * @param vertex
+     * @param state
+     * @param parent
+     * @param timestamp
+     */
+    protected void reinitialize(V vertex, int state, N parent, long timestamp) {
+        this.vertex = vertex;
+        this.state = state;
+        this.parent = parent;
+        this.timestamp = timestamp;
+        this.firstChild = null;
+        this.previousSibling = null;
+        this.nextSibling = null;
     }
 
     public abstract AbstractSpanningTree<V, T, N> getTree();
@@ -62,23 +81,92 @@ public abstract class AbstractTreeNode<V, T extends AbstractSpanningTree<V, T, N
     public void setParent(N parent) {
         // remove this node from previous parent
         if(this.parent != null) {
-            this.parent.children.remove(this);
+            this.parent.removeChild((N) this);
         }
         // set a new parent
         this.parent = parent;
         // if it is set null, then it is time to remove this node
         if(this.parent != null) {
             // add this as a child to new parent
-            if (parent != null) ;
             this.parent.addChildren((N) this);
         }
     }
 
+    /**
+     * @return first child of this node, <code>null</code> if it is a leaf
+     */
+    public N getFirstChild() {
+        return firstChild;
+    }
+
+    /**
+     * @return next child of this node's parent, <code>null</code> if it is the last one
+     */
+    public N getNextSibling() {
+        return nextSibling;
+    }
+
+    /**
+     * Traversals on the hot path should iterate over {@link #getFirstChild()} and {@link #getNextSibling()} instead
+     * @return a view of the children of this node, backed by the sibling list
+     */
     public Collection<N> getChildren() {
-        return children;
+        return new AbstractCollection<N>() {
+            @Override
+            public Iterator<N> iterator() {
+                return new Iterator<N>() {
+                    private N next = firstChild;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public N next() {
+                        if(next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        N current = next;
+                        next = current.nextSibling;
+                        return current;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for(N child = firstChild; child != null; child = child.nextSibling) {
+                    size++;
+                }
+                return size;
+            }
+        };
     }
 
     public void addChildren(N child) {
-        this.children.add(child);
+        child.previousSibling = null;
+        child.nextSibling = this.firstChild;
+        if(this.firstChild != null) {
+            this.firstChild.previousSibling = child;
+        }
+        this.firstChild = child;
+    }
+
+    protected void removeChild(N child) {
+        if(child.previousSibling != null) {
+            child.previousSibling.nextSibling = child.nextSibling;
+        } else if(this.firstChild == child) {
+            this.firstChild = child.nextSibling;
+        } else {
+            // child is not linked to this node
+            return;
+        }
+        if(child.nextSibling != null) {
+            child.nextSibling.previousSibling = child.previousSibling;
+        }
+        child.previousSibling = null;
+        child.nextSibling = null;
     }
 }
@@ -21,23 +21,42 @@ public class Delta<V, T extends AbstractSpanningTree<V, T, N>, N extends Abstrac
 
     private ObjectFactory<V, T, N> objectFactory;
 
+    // expiry jobs are reused across slides
+    private List<RAPQSpanningTreeExpiryJob> expiryJobs;
+
     private final Logger LOG = LoggerFactory.getLogger(Delta.class);
 
     public Delta(int capacity, ObjectFactory<V, T, N> objectFactory) {
         treeIndex = new ConcurrentHashMap<>(Constants.EXPECTED_TREES);
         nodeToTreeIndex = new ConcurrentHashMap<>(Constants.EXPECTED_TREES);
         this.objectFactory = objectFactory;
+        this.expiryJobs = new ArrayList<>();
     }
 
     public ObjectFactory<V, T, N> getObjectFactory() {
         return objectFactory;
     }
 
+    /**
+     * Replaces the factory of the trees and nodes, must be called before any tree is created
+     * @param objectFactory
+     */
+    public void setObjectFactory(ObjectFactory<V, T, N> objectFactory) {
+        this.objectFactory = objectFactory;
+    }
+
     public Collection<T> getTrees(V vertex, int state) {
         Set<T> containingTrees = nodeToTreeIndex.computeIfAbsent(Hasher.createTreeNodePairKey(vertex, state), key -> Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>()) );
         return containingTrees;
     }
 
+    /**
+     * @return all spanning trees in the index
+     */
+    public Collection<T> getTrees() {
+        return treeIndex.values();
+    }
+
     public boolean exists(V vertex) {
         return treeIndex.containsKey(vertex);
     }
@@ -92,10 +111,12 @@ public class Delta<V, T extends AbstractSpanningTree<V, T, N>, N extends Abstrac
      */
     public <L> void expiry(Long minTimestamp, ProductGraph<V,L> productGraph, ExecutorService executorService) {
         Collection<T> trees = treeIndex.values();
-        List<Future<Void>> futures = new ArrayList<>(trees.size());
         CompletionService<Void> completionService = new ExecutorCompletionService<>(executorService);
 
         LOG.info("{} of trees in Delta", trees.size());
+        // trees are batched into jobs similar to expansion jobs
+        int jobCount = 0;
+        RAPQSpanningTreeExpiryJob expiryJob = null;
         for(T tree : trees) {
             treeSizeHistogram.update(tree.getSize());
             if (tree.getMinTimestamp() > minTimestamp) {
@@ -103,17 +124,32 @@ public class Delta<V, T extends AbstractSpanningTree<V, T, N>, N extends Abstrac
                 continue;
             }
 
-            RAPQSpanningTreeExpiryJob<V, L, T> RAPQSpanningTreeExpiryJob = new RAPQSpanningTreeExpiryJob(minTimestamp, productGraph, tree);
-            futures.add(completionService.submit(RAPQSpanningTreeExpiryJob));
+            if(expiryJob == null) {
+                if(jobCount == expiryJobs.size()) {
+                    expiryJobs.add(new RAPQSpanningTreeExpiryJob());
+                }
+                expiryJob = expiryJobs.get(jobCount++);
+                expiryJob.reset(minTimestamp, productGraph);
+            }
+            if(!expiryJob.addTree(tree)) {
+                completionService.submit(expiryJob);
+                expiryJob = null;
+            }
+        }
+        if(expiryJob != null) {
+            completionService.submit(expiryJob);
         }
 
-        for(int i = 0; i < futures.size(); i++) {
+        for(int i = 0; i < jobCount; i++) {
             try {
                 completionService.take().get();
             } catch (InterruptedException | ExecutionException e) {
                 LOG.error("SpanningTreeExpiry interrupted during execution", e);
             }
         }
+        for(int i = 0; i < jobCount; i++) {
+            expiryJobs.get(i).reset(minTimestamp, null);
+        }
 
         LOG.info("Expiry at {}: # of trees {}, # of edges in the productGraph {}", minTimestamp, treeIndex.size(), productGraph.getEdgeCount());
     }
@@ -123,22 +159,42 @@ public class Delta<V, T extends AbstractSpanningTree<V, T, N>, N extends Abstrac
         this.treeSizeHistogram = metricRegistry.histogram("tree-size-histogram");
     }
 
-    private static class RAPQSpanningTreeExpiryJob<V,L, T extends AbstractSpanningTree> implements Callable<Void> {
+    private class RAPQSpanningTreeExpiryJob implements Callable<Void> {
 
-        private Long minTimestamp;
-        private ProductGraph<V,L> productGraph;
+        private long minTimestamp;
+        private ProductGraph<V, ?> productGraph;
 
-        private T tree;
+        private List<T> trees;
 
-        public RAPQSpanningTreeExpiryJob(Long minTimestamp, ProductGraph<V,L> productGraph, T tree) {
+        public RAPQSpanningTreeExpiryJob() {
+            this.trees = new ArrayList<>(Constants.EXPECTED_BATCH_SIZE);
+        }
+
+        /**
+         * Clears the batch for the next expiry
+         * @param minTimestamp
+         * @param productGraph
+         */
+        public void reset(long minTimestamp, ProductGraph<V, ?> productGraph) {
+            trees.clear();
             this.minTimestamp = minTimestamp;
             this.productGraph = productGraph;
-            this.tree = tree;
+        }
+
+        /**
+         * @param tree
+         * @return false whenever the job is full and should be submitted
+         */
+        public boolean addTree(T tree) {
+            trees.add(tree);
+            return trees.size() < Constants.EXPECTED_BATCH_SIZE;
         }
 
         @Override
         public Void call() throws Exception {
-            tree.removeOldEdges(minTimestamp, productGraph);
+            for(T tree : trees) {
+                tree.releaseNodes(tree.removeOldEdges(minTimestamp, productGraph));
+            }
             return null;
         }
     }
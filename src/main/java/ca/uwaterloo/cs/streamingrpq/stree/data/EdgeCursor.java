@@ -0,0 +1,30 @@
+package ca.uwaterloo.cs.streamingrpq.stree.data;
+
+/**
+ * Cursor over the forward or backward edges of a product graph node, that exposes the other endpoint and the
+ * timestamp of the current edge without creating {@link GraphEdge} and {@link ProductGraphNode} objects for it.
+ * Traversals on the hot paths use cursors, as product graphs that do not store their edges on the Java heap would
+ * otherwise allocate a handle for every edge they visit.
+ * The product graph must not be modified while a cursor is in use
+ * @param <V> type of vertex identifiers
+ */
+public interface EdgeCursor<V> {
+
+    /**
+     * Moves to the next edge, must be called before the first edge is accessed
+     * @return false if there is no edge left
+     */
+    boolean next();
+
+    /**
+     * @return vertex of the target of the current forward edge, or of the source of the current backward edge
+     */
+    V getVertex();
+
+    /**
+     * @return state of the target of the current forward edge, or of the source of the current backward edge
+     */
+    int getState();
+
+    long getTimestamp();
+}
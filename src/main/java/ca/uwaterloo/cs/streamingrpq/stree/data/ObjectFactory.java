@@ -10,6 +10,13 @@ public interface  ObjectFactory<V, T extends AbstractSpanningTree<V, T, N>, N ex
 
     N createTreeNode(T tree, V vertex, int state, N parentNode, long timestamp);
 
+    /**
+     * Returns a node that is removed from its tree, so that it can be recycled by {@link #createTreeNode}.
+     * The node must not be referenced by any tree or expansion job anymore
+     * @param node
+     */
+    void releaseTreeNode(N node);
+
     T createSpanningTree(Delta<V, T, N> delta, V vertex, long timestamp);
 
     <L> AbstractTreeExpansionJob createExpansionJob(ProductGraph<Integer,L> productGraph, Automata<L> automata, Set<ResultPair<Integer>> results, boolean isDeletion);
@@ -0,0 +1,675 @@
+package ca.uwaterloo.cs.streamingrpq.stree.data;
+
+import ca.uwaterloo.cs.streamingrpq.stree.query.Automata;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Constants;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Hasher;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Product graph that keeps its nodes, adjacency lists and the time ordered edge log in direct memory.
+ * Nodes and edges are fixed size records in slabs of direct {@link ByteBuffer}s and are addressed by integer ids.
+ * Each edge is linked into four doubly linked lists: forward list of its source, backward list of its target,
+ * the time ordered log of the window and the list of its parallel edges, i.e., edges of the same label between the
+ * same product nodes. Deleted edge records and the records of nodes without any edge are recycled through free lists.
+ *
+ * Only a handful of objects live on the Java heap regardless of the window size, besides the ids of the edge labels.
+ * Traversals use {@link EdgeCursor}s that read the records in place; {@link GraphEdge} and {@link ProductGraphNode}
+ * objects are only created as short-lived handles by {@link #getForwardEdges} and {@link #getBackwardEdges}.
+ * @param <L> type of edge labels
+ */
+public class OffHeapProductGraph<L> extends ProductGraph<Integer, L> {
+
+    private static final int NIL = -1;
+
+    // node record layout, the state of a free node record is NIL and its free list is chained through the forward list
+    private static final int NODE_VERTEX = 0;
+    private static final int NODE_STATE = 4;
+    private static final int NODE_FIRST_OUT = 8;
+    private static final int NODE_FIRST_IN = 12;
+    private static final int NODE_BYTES = 16;
+
+    // edge record layout, padded so that timestamps stay aligned
+    private static final int EDGE_SOURCE = 0;
+    private static final int EDGE_TARGET = 4;
+    private static final int EDGE_TIMESTAMP = 8;
+    private static final int EDGE_PREV_OUT = 16;
+    private static final int EDGE_NEXT_OUT = 20;
+    private static final int EDGE_PREV_IN = 24;
+    private static final int EDGE_NEXT_IN = 28;
+    private static final int EDGE_PREV_TIME = 32;
+    private static final int EDGE_NEXT_TIME = 36;
+    private static final int EDGE_LABEL = 40;
+    private static final int EDGE_PREV_PARALLEL = 44;
+    private static final int EDGE_NEXT_PARALLEL = 48;
+    private static final int EDGE_BYTES = 56;
+
+    private final Slabs nodes;
+    private final Slabs edges;
+
+    // open addressing index from (vertex, state) to node id
+    private ByteBuffer nodeIndex;
+    private int nodeIndexMask;
+    private int nodeCount;
+    private int nodeCapacity;
+    private int freeNode;
+
+    // open addressing index from (source node, target node, label) to the first of the parallel edges
+    private ByteBuffer parallelEdgeIndex;
+    private int parallelEdgeIndexMask;
+    private int parallelEdgeCount;
+
+    // dense ids of the labels stored in the edge records
+    private final Map<L, Integer> labelIds;
+
+    private int edgeCapacity;
+    private int freeEdge;
+
+    // oldest and youngest edges of the time ordered log
+    private int timeHead;
+    private int timeTail;
+
+    private int edgeCount;
+
+    private final Logger LOG = LoggerFactory.getLogger(OffHeapProductGraph.class);
+
+    public OffHeapProductGraph(int capacity, Automata<L> automata) {
+        super(automata);
+        this.nodes = new Slabs(NODE_BYTES);
+        this.edges = new Slabs(EDGE_BYTES);
+
+        int indexSize = Integer.highestOneBit(Math.max(Constants.EXPECTED_NEIGHBOURS, Math.min(capacity, 1 << 28)) * 2);
+        this.nodeIndex = createIndex(indexSize);
+        this.nodeIndexMask = indexSize - 1;
+        this.nodeCount = 0;
+        this.nodeCapacity = 0;
+        this.freeNode = NIL;
+
+        this.parallelEdgeIndex = createIndex(indexSize);
+        this.parallelEdgeIndexMask = indexSize - 1;
+        this.parallelEdgeCount = 0;
+        this.labelIds = new HashMap<>();
+
+        this.edgeCapacity = 0;
+        this.freeEdge = NIL;
+        this.timeHead = NIL;
+        this.timeTail = NIL;
+        this.edgeCount = 0;
+    }
+
+    @Override
+    public void addEdge(Integer source, Integer target, L label, long timestamp) {
+        Map<Integer, Integer> transitions = automata.getTransition(label);
+        if (transitions.isEmpty()) {
+            return;
+        }
+        Integer labelId = labelIds.get(label);
+        if (labelId == null) {
+            labelId = labelIds.size();
+            labelIds.put(label, labelId);
+        }
+        for (Map.Entry<Integer, Integer> transition : transitions.entrySet()) {
+            int sourceNode = getOrCreateNode(source, transition.getKey());
+            int targetNode = getOrCreateNode(target, transition.getValue());
+
+            int edge = allocateEdge();
+            edges.putInt(edge, EDGE_SOURCE, sourceNode);
+            edges.putInt(edge, EDGE_TARGET, targetNode);
+            edges.putLong(edge, EDGE_TIMESTAMP, timestamp);
+            edges.putInt(edge, EDGE_LABEL, labelId);
+
+            // prepend to the forward list of the source
+            int firstOut = nodes.getInt(sourceNode, NODE_FIRST_OUT);
+            edges.putInt(edge, EDGE_PREV_OUT, NIL);
+            edges.putInt(edge, EDGE_NEXT_OUT, firstOut);
+            if (firstOut != NIL) {
+                edges.putInt(firstOut, EDGE_PREV_OUT, edge);
+            }
+            nodes.putInt(sourceNode, NODE_FIRST_OUT, edge);
+
+            // prepend to the backward list of the target
+            int firstIn = nodes.getInt(targetNode, NODE_FIRST_IN);
+            edges.putInt(edge, EDGE_PREV_IN, NIL);
+            edges.putInt(edge, EDGE_NEXT_IN, firstIn);
+            if (firstIn != NIL) {
+                edges.putInt(firstIn, EDGE_PREV_IN, edge);
+            }
+            nodes.putInt(targetNode, NODE_FIRST_IN, edge);
+
+            // append to the time ordered log
+            edges.putInt(edge, EDGE_PREV_TIME, timeTail);
+            edges.putInt(edge, EDGE_NEXT_TIME, NIL);
+            if (timeTail != NIL) {
+                edges.putInt(timeTail, EDGE_NEXT_TIME, edge);
+            } else {
+                timeHead = edge;
+            }
+            timeTail = edge;
+
+            linkParallelEdge(edge);
+            edgeCount++;
+        }
+    }
+
+    /**
+     * Among the parallel edges of the label, the edge with the given timestamp is removed, otherwise the latest edge
+     * that is older than the timestamp, and nothing is removed if all of them are newer
+     */
+    @Override
+    public void removeEdge(Integer source, Integer target, L label, long timestamp) {
+        Integer labelId = labelIds.get(label);
+        if (labelId == null) {
+            return;
+        }
+        Map<Integer, Integer> transitions = automata.getTransition(label);
+        for (Map.Entry<Integer, Integer> transition : transitions.entrySet()) {
+            int sourceNode = findNode(source, transition.getKey());
+            int targetNode = findNode(target, transition.getValue());
+            if (sourceNode == NIL || targetNode == NIL) {
+                continue;
+            }
+            int parallelEdge = parallelEdgeIndex.getInt(findParallelEdgeSlot(sourceNode, targetNode, labelId) << 2);
+            int deletedEdge = NIL;
+            long deletedTimestamp = Long.MIN_VALUE;
+            for (int edge = parallelEdge; edge != NIL; edge = edges.getInt(edge, EDGE_NEXT_PARALLEL)) {
+                long edgeTimestamp = edges.getLong(edge, EDGE_TIMESTAMP);
+                if (edgeTimestamp == timestamp) {
+                    deletedEdge = edge;
+                    break;
+                } else if (edgeTimestamp < timestamp && (deletedEdge == NIL || edgeTimestamp > deletedTimestamp)) {
+                    deletedEdge = edge;
+                    deletedTimestamp = edgeTimestamp;
+                }
+            }
+            if (deletedEdge != NIL) {
+                unlinkEdge(deletedEdge);
+            }
+        }
+    }
+
+    @Override
+    public void removeOldEdges(long minTimestamp) {
+        LOG.info("Graph expiry at {}", minTimestamp);
+        // it suffices to linearly scan from the oldest edge as we assume ordered arrival
+        while (timeHead != NIL && edges.getLong(timeHead, EDGE_TIMESTAMP) <= minTimestamp) {
+            unlinkEdge(timeHead);
+        }
+    }
+
+    @Override
+    public Collection<ProductGraphNode<Integer>> getVertices() {
+        List<ProductGraphNode<Integer>> vertices = new ArrayList<>(nodeCount);
+        for (int node = 0; node < nodeCapacity; node++) {
+            if (nodes.getInt(node, NODE_STATE) != NIL) {
+                vertices.add(createHandle(node));
+            }
+        }
+        return vertices;
+    }
+
+    @Override
+    public Collection<GraphEdge<ProductGraphNode<Integer>>> getForwardEdges(Integer source, int state) {
+        int node = findNode(source, state);
+        if (node == NIL) {
+            return Collections.emptyList();
+        }
+        ProductGraphNode<Integer> sourceHandle = createHandle(node);
+        List<GraphEdge<ProductGraphNode<Integer>>> forwardEdges = new ArrayList<>(Constants.EXPECTED_NEIGHBOURS);
+        for (int edge = nodes.getInt(node, NODE_FIRST_OUT); edge != NIL; edge = edges.getInt(edge, EDGE_NEXT_OUT)) {
+            forwardEdges.add(createEdgeHandle(edge, sourceHandle, createHandle(edges.getInt(edge, EDGE_TARGET))));
+        }
+        return forwardEdges;
+    }
+
+    @Override
+    public Collection<GraphEdge<ProductGraphNode<Integer>>> getForwardEdges(ProductGraphNode<Integer> node) {
+        return getForwardEdges(node.getVertex(), node.getState());
+    }
+
+    @Override
+    public Collection<GraphEdge<ProductGraphNode<Integer>>> getBackwardEdges(Integer target, int state) {
+        int node = findNode(target, state);
+        if (node == NIL) {
+            return Collections.emptyList();
+        }
+        ProductGraphNode<Integer> targetHandle = createHandle(node);
+        List<GraphEdge<ProductGraphNode<Integer>>> backwardEdges = new ArrayList<>(Constants.EXPECTED_NEIGHBOURS);
+        for (int edge = nodes.getInt(node, NODE_FIRST_IN); edge != NIL; edge = edges.getInt(edge, EDGE_NEXT_IN)) {
+            backwardEdges.add(createEdgeHandle(edge, createHandle(edges.getInt(edge, EDGE_SOURCE)), targetHandle));
+        }
+        return backwardEdges;
+    }
+
+    @Override
+    public Collection<GraphEdge<ProductGraphNode<Integer>>> getBackwardEdges(ProductGraphNode<Integer> node) {
+        return getBackwardEdges(node.getVertex(), node.getState());
+    }
+
+    @Override
+    public boolean hasForwardEdges(Integer vertex, int state) {
+        int node = findNode(vertex, state);
+        return node != NIL && nodes.getInt(node, NODE_FIRST_OUT) != NIL;
+    }
+
+    @Override
+    public EdgeCursor<Integer> getForwardEdgeCursor(Integer vertex, int state) {
+        int node = findNode(vertex, state);
+        return new RecordEdgeCursor(node == NIL ? NIL : nodes.getInt(node, NODE_FIRST_OUT), EDGE_NEXT_OUT, EDGE_TARGET);
+    }
+
+    @Override
+    public EdgeCursor<Integer> getBackwardEdgeCursor(Integer vertex, int state) {
+        int node = findNode(vertex, state);
+        return new RecordEdgeCursor(node == NIL ? NIL : nodes.getInt(node, NODE_FIRST_IN), EDGE_NEXT_IN, EDGE_SOURCE);
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return number of product nodes that have at least one edge
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return total number of bytes allocated in direct memory for nodes, edges and the indexes
+     */
+    public long getAllocatedBytes() {
+        return nodes.getAllocatedBytes() + edges.getAllocatedBytes() + nodeIndex.capacity() + parallelEdgeIndex.capacity();
+    }
+
+    @Override
+    public void addMetricRegistry(MetricRegistry metricRegistry) {
+        metricRegistry.register("offheap-graph-bytes", (Gauge<Long>) this::getAllocatedBytes);
+    }
+
+    private ProductGraphNode<Integer> createHandle(int node) {
+        return new ProductGraphNode<>(nodes.getInt(node, NODE_VERTEX), nodes.getInt(node, NODE_STATE), null, null);
+    }
+
+    private GraphEdge<ProductGraphNode<Integer>> createEdgeHandle(int edge, ProductGraphNode<Integer> sourceHandle, ProductGraphNode<Integer> targetHandle) {
+        return new GraphEdge<>(sourceHandle, targetHandle, edges.getLong(edge, EDGE_TIMESTAMP));
+    }
+
+    private int allocateEdge() {
+        if (freeEdge != NIL) {
+            // free list is chained through the forward list pointer
+            int edge = freeEdge;
+            freeEdge = edges.getInt(edge, EDGE_NEXT_OUT);
+            return edge;
+        }
+        edges.ensureCapacity(edgeCapacity);
+        return edgeCapacity++;
+    }
+
+    /**
+     * Removes the edge from the adjacency lists of its endpoints, from the time ordered log and from its parallel
+     * edges, and returns its record to the free list. Endpoints that are left without any edge are released
+     * @param edge
+     */
+    private void unlinkEdge(int edge) {
+        int sourceNode = edges.getInt(edge, EDGE_SOURCE);
+        int targetNode = edges.getInt(edge, EDGE_TARGET);
+
+        int prevOut = edges.getInt(edge, EDGE_PREV_OUT);
+        int nextOut = edges.getInt(edge, EDGE_NEXT_OUT);
+        if (prevOut != NIL) {
+            edges.putInt(prevOut, EDGE_NEXT_OUT, nextOut);
+        } else {
+            nodes.putInt(sourceNode, NODE_FIRST_OUT, nextOut);
+        }
+        if (nextOut != NIL) {
+            edges.putInt(nextOut, EDGE_PREV_OUT, prevOut);
+        }
+
+        int prevIn = edges.getInt(edge, EDGE_PREV_IN);
+        int nextIn = edges.getInt(edge, EDGE_NEXT_IN);
+        if (prevIn != NIL) {
+            edges.putInt(prevIn, EDGE_NEXT_IN, nextIn);
+        } else {
+            nodes.putInt(targetNode, NODE_FIRST_IN, nextIn);
+        }
+        if (nextIn != NIL) {
+            edges.putInt(nextIn, EDGE_PREV_IN, prevIn);
+        }
+
+        removeFromTimeLog(edge);
+        unlinkParallelEdge(edge);
+
+        edges.putInt(edge, EDGE_NEXT_OUT, freeEdge);
+        freeEdge = edge;
+        edgeCount--;
+
+        releaseIfIsolated(sourceNode);
+        if (targetNode != sourceNode) {
+            releaseIfIsolated(targetNode);
+        }
+    }
+
+    private void removeFromTimeLog(int edge) {
+        int prevTime = edges.getInt(edge, EDGE_PREV_TIME);
+        int nextTime = edges.getInt(edge, EDGE_NEXT_TIME);
+        if (prevTime != NIL) {
+            edges.putInt(prevTime, EDGE_NEXT_TIME, nextTime);
+        } else {
+            timeHead = nextTime;
+        }
+        if (nextTime != NIL) {
+            edges.putInt(nextTime, EDGE_PREV_TIME, prevTime);
+        } else {
+            timeTail = prevTime;
+        }
+    }
+
+    private void linkParallelEdge(int edge) {
+        int slot = findParallelEdgeSlot(edges.getInt(edge, EDGE_SOURCE), edges.getInt(edge, EDGE_TARGET), edges.getInt(edge, EDGE_LABEL));
+        int head = parallelEdgeIndex.getInt(slot << 2);
+        // the new edge becomes the head of the list
+        edges.putInt(edge, EDGE_PREV_PARALLEL, NIL);
+        edges.putInt(edge, EDGE_NEXT_PARALLEL, head);
+        if (head != NIL) {
+            edges.putInt(head, EDGE_PREV_PARALLEL, edge);
+        }
+        parallelEdgeIndex.putInt(slot << 2, edge);
+        if (head == NIL && ++parallelEdgeCount * 2 > parallelEdgeIndexMask) {
+            // keep the load factor of the index below 0.5
+            resizeParallelEdgeIndex();
+        }
+    }
+
+    private void unlinkParallelEdge(int edge) {
+        int prevParallel = edges.getInt(edge, EDGE_PREV_PARALLEL);
+        int nextParallel = edges.getInt(edge, EDGE_NEXT_PARALLEL);
+        if (nextParallel != NIL) {
+            edges.putInt(nextParallel, EDGE_PREV_PARALLEL, prevParallel);
+        }
+        if (prevParallel != NIL) {
+            edges.putInt(prevParallel, EDGE_NEXT_PARALLEL, nextParallel);
+            return;
+        }
+        int slot = findParallelEdgeSlot(edges.getInt(edge, EDGE_SOURCE), edges.getInt(edge, EDGE_TARGET), edges.getInt(edge, EDGE_LABEL));
+        if (nextParallel != NIL) {
+            parallelEdgeIndex.putInt(slot << 2, nextParallel);
+        } else {
+            removeSlot(parallelEdgeIndex, parallelEdgeIndexMask, slot, false);
+            parallelEdgeCount--;
+        }
+    }
+
+    /**
+     * @return slot of the parallel edges with the given endpoints and label, or the empty slot where they belong
+     */
+    private int findParallelEdgeSlot(int sourceNode, int targetNode, int labelId) {
+        int slot = parallelEdgeHash(sourceNode, targetNode, labelId) & parallelEdgeIndexMask;
+        while (true) {
+            int edge = parallelEdgeIndex.getInt(slot << 2);
+            if (edge == NIL || (edges.getInt(edge, EDGE_SOURCE) == sourceNode && edges.getInt(edge, EDGE_TARGET) == targetNode
+                    && edges.getInt(edge, EDGE_LABEL) == labelId)) {
+                return slot;
+            }
+            slot = (slot + 1) & parallelEdgeIndexMask;
+        }
+    }
+
+    /**
+     * Removes the node from the index and returns its record to the free list once it has no edge left.
+     * Tree nodes refer to product nodes by vertex and state, so the record can be reused right away
+     * @param node
+     */
+    private void releaseIfIsolated(int node) {
+        if (nodes.getInt(node, NODE_FIRST_OUT) != NIL || nodes.getInt(node, NODE_FIRST_IN) != NIL) {
+            return;
+        }
+        int vertex = nodes.getInt(node, NODE_VERTEX);
+        int state = nodes.getInt(node, NODE_STATE);
+        int slot = hash(vertex, state) & nodeIndexMask;
+        while (nodeIndex.getInt(slot << 2) != node) {
+            slot = (slot + 1) & nodeIndexMask;
+        }
+        removeSlot(nodeIndex, nodeIndexMask, slot, true);
+
+        nodes.putInt(node, NODE_STATE, NIL);
+        nodes.putInt(node, NODE_FIRST_OUT, freeNode);
+        freeNode = node;
+        nodeCount--;
+    }
+
+    /**
+     * Empties the slot of a linear probing index, and shifts back the entries of the same probe sequence so that
+     * lookups never need tombstones
+     * @param index
+     * @param mask
+     * @param slot
+     * @param isNodeIndex whether the entries are node ids or edge ids of the parallel edge index
+     */
+    private void removeSlot(ByteBuffer index, int mask, int slot, boolean isNodeIndex) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        int entry;
+        while ((entry = index.getInt(next << 2)) != NIL) {
+            int home = (isNodeIndex ? nodeHash(entry) : parallelEdgeHash(entry)) & mask;
+            // the entry may move into the hole if the hole is not before its home slot in the probe sequence
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                index.putInt(hole << 2, entry);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index.putInt(hole << 2, NIL);
+    }
+
+    private int findNode(int vertex, int state) {
+        int slot = hash(vertex, state) & nodeIndexMask;
+        while (true) {
+            int node = nodeIndex.getInt(slot << 2);
+            if (node == NIL) {
+                return NIL;
+            }
+            if (nodes.getInt(node, NODE_VERTEX) == vertex && nodes.getInt(node, NODE_STATE) == state) {
+                return node;
+            }
+            slot = (slot + 1) & nodeIndexMask;
+        }
+    }
+
+    private int getOrCreateNode(int vertex, int state) {
+        int slot = hash(vertex, state) & nodeIndexMask;
+        while (true) {
+            int node = nodeIndex.getInt(slot << 2);
+            if (node == NIL) {
+                break;
+            }
+            if (nodes.getInt(node, NODE_VERTEX) == vertex && nodes.getInt(node, NODE_STATE) == state) {
+                return node;
+            }
+            slot = (slot + 1) & nodeIndexMask;
+        }
+
+        int node;
+        if (freeNode != NIL) {
+            node = freeNode;
+            freeNode = nodes.getInt(node, NODE_FIRST_OUT);
+        } else {
+            node = nodeCapacity++;
+            nodes.ensureCapacity(node);
+        }
+        nodes.putInt(node, NODE_VERTEX, vertex);
+        nodes.putInt(node, NODE_STATE, state);
+        nodes.putInt(node, NODE_FIRST_OUT, NIL);
+        nodes.putInt(node, NODE_FIRST_IN, NIL);
+        nodeIndex.putInt(slot << 2, node);
+
+        // keep the load factor of the index below 0.5
+        if (++nodeCount * 2 > nodeIndexMask) {
+            resizeNodeIndex();
+        }
+        return node;
+    }
+
+    private void resizeNodeIndex() {
+        int indexSize = (nodeIndexMask + 1) * 2;
+        ByteBuffer resized = createIndex(indexSize);
+        int mask = indexSize - 1;
+        for (int i = 0; i <= nodeIndexMask; i++) {
+            int node = nodeIndex.getInt(i << 2);
+            if (node == NIL) {
+                continue;
+            }
+            int slot = nodeHash(node) & mask;
+            while (resized.getInt(slot << 2) != NIL) {
+                slot = (slot + 1) & mask;
+            }
+            resized.putInt(slot << 2, node);
+        }
+        this.nodeIndex = resized;
+        this.nodeIndexMask = mask;
+    }
+
+    private void resizeParallelEdgeIndex() {
+        int indexSize = (parallelEdgeIndexMask + 1) * 2;
+        ByteBuffer resized = createIndex(indexSize);
+        int mask = indexSize - 1;
+        for (int i = 0; i <= parallelEdgeIndexMask; i++) {
+            int edge = parallelEdgeIndex.getInt(i << 2);
+            if (edge == NIL) {
+                continue;
+            }
+            int slot = parallelEdgeHash(edge) & mask;
+            while (resized.getInt(slot << 2) != NIL) {
+                slot = (slot + 1) & mask;
+            }
+            resized.putInt(slot << 2, edge);
+        }
+        this.parallelEdgeIndex = resized;
+        this.parallelEdgeIndexMask = mask;
+    }
+
+    private int nodeHash(int node) {
+        return hash(nodes.getInt(node, NODE_VERTEX), nodes.getInt(node, NODE_STATE));
+    }
+
+    private int parallelEdgeHash(int edge) {
+        return parallelEdgeHash(edges.getInt(edge, EDGE_SOURCE), edges.getInt(edge, EDGE_TARGET), edges.getInt(edge, EDGE_LABEL));
+    }
+
+    private static int parallelEdgeHash(int sourceNode, int targetNode, int labelId) {
+        int h = ((sourceNode * 31) + targetNode) * 31 + labelId;
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static ByteBuffer createIndex(int size) {
+        ByteBuffer index = ByteBuffer.allocateDirect(size << 2).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < size; i++) {
+            index.putInt(i << 2, NIL);
+        }
+        return index;
+    }
+
+    private static int hash(int vertex, int state) {
+        // spread the bits as vertex ids are often dense
+        int h = Hasher.TreeNodeHasher(vertex, state) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Cursor that follows the forward or backward list of a node through the edge records
+     */
+    private class RecordEdgeCursor implements EdgeCursor<Integer> {
+
+        private final int nextField;
+        private final int endpointField;
+        private int nextEdge;
+        private int edge;
+
+        private RecordEdgeCursor(int firstEdge, int nextField, int endpointField) {
+            this.nextEdge = firstEdge;
+            this.nextField = nextField;
+            this.endpointField = endpointField;
+            this.edge = NIL;
+        }
+
+        @Override
+        public boolean next() {
+            edge = nextEdge;
+            if (edge == NIL) {
+                return false;
+            }
+            nextEdge = edges.getInt(edge, nextField);
+            return true;
+        }
+
+        @Override
+        public Integer getVertex() {
+            return nodes.getInt(edges.getInt(edge, endpointField), NODE_VERTEX);
+        }
+
+        @Override
+        public int getState() {
+            return nodes.getInt(edges.getInt(edge, endpointField), NODE_STATE);
+        }
+
+        @Override
+        public long getTimestamp() {
+            return edges.getLong(edge, EDGE_TIMESTAMP);
+        }
+    }
+
+    /**
+     * Fixed size records stored in direct memory slabs, addressed by record id
+     */
+    private static class Slabs {
+        private static final int SLAB_BITS = 16;
+        private static final int SLAB_RECORDS = 1 << SLAB_BITS;
+        private static final int SLAB_MASK = SLAB_RECORDS - 1;
+
+        private final int recordBytes;
+        private final List<ByteBuffer> slabs;
+
+        private Slabs(int recordBytes) {
+            this.recordBytes = recordBytes;
+            this.slabs = new ArrayList<>();
+        }
+
+        private void ensureCapacity(int id) {
+            while ((id >>> SLAB_BITS) >= slabs.size()) {
+                slabs.add(ByteBuffer.allocateDirect(SLAB_RECORDS * recordBytes).order(ByteOrder.nativeOrder()));
+            }
+        }
+
+        private int getInt(int id, int field) {
+            return slabs.get(id >>> SLAB_BITS).getInt((id & SLAB_MASK) * recordBytes + field);
+        }
+
+        private void putInt(int id, int field, int value) {
+            slabs.get(id >>> SLAB_BITS).putInt((id & SLAB_MASK) * recordBytes + field, value);
+        }
+
+        private long getLong(int id, int field) {
+            return slabs.get(id >>> SLAB_BITS).getLong((id & SLAB_MASK) * recordBytes + field);
+        }
+
+        private void putLong(int id, int field, long value) {
+            slabs.get(id >>> SLAB_BITS).putLong((id & SLAB_MASK) * recordBytes + field, value);
+        }
+
+        private long getAllocatedBytes() {
+            return (long) slabs.size() * SLAB_RECORDS * recordBytes;
+        }
+    }
+}
@@ -8,13 +8,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
 
 public class ProductGraph<V,L> {
 
-    private Automata<L> automata;
+    protected Automata<L> automata;
 
     private Map<Hasher.MapKey<V>, ProductGraphNode<V>> nodeIndex;
 
@@ -25,8 +26,17 @@ public class ProductGraph<V,L> {
     private final Logger LOG = LoggerFactory.getLogger(ProductGraph.class);
 
     public ProductGraph(int capacity, Automata<L> automata) {
+        this(automata);
         timeOrderedEdges = new LinkedList<GraphEdge<ProductGraphNode<V>>>();
         nodeIndex = Maps.newHashMapWithExpectedSize(capacity);
+    }
+
+    /**
+     * Creates a product graph without allocating the on-heap edge storage.
+     * Only used by implementations that store adjacency lists in an alternative storage
+     * @param automata
+     */
+    protected ProductGraph(Automata<L> automata) {
         this.automata = automata;
         this.edgeCount = 0;
     }
@@ -80,6 +90,18 @@ public class ProductGraph<V,L> {
         return nodeIndex.values();
     }
 
+    /**
+     * @return automata that this product graph is constructed for
+     */
+    public Automata<L> getAutomata() {
+        return automata;
+    }
+
+    /**
+     * @param source
+     * @param state
+     * @return forward edges of the product node, empty if the node does not exist as it is not created by the lookup
+     */
     public Collection<GraphEdge<ProductGraphNode<V>>> getForwardEdges(V source, int state) {
         return getForwardEdges(this.getNode(source, state));
     }
@@ -96,6 +118,36 @@ public class ProductGraph<V,L> {
         return node.getBackwardEdges();
     }
 
+    /**
+     * @param vertex
+     * @param state
+     * @return whether the product node has any forward edge, without creating the node
+     */
+    public boolean hasForwardEdges(V vertex, int state) {
+        ProductGraphNode<V> node = this.nodeIndex.get(Hasher.getThreadLocalTreeNodePairKey(vertex, state));
+        return node != null && !node.getForwardEdges().isEmpty();
+    }
+
+    /**
+     * @param vertex
+     * @param state
+     * @return cursor over the forward edges of the product node, without creating the node
+     */
+    public EdgeCursor<V> getForwardEdgeCursor(V vertex, int state) {
+        ProductGraphNode<V> node = this.nodeIndex.get(Hasher.getThreadLocalTreeNodePairKey(vertex, state));
+        return new ListEdgeCursor<>(node == null ? Collections.emptyList() : node.getForwardEdges(), true);
+    }
+
+    /**
+     * @param vertex
+     * @param state
+     * @return cursor over the backward edges of the product node, without creating the node
+     */
+    public EdgeCursor<V> getBackwardEdgeCursor(V vertex, int state) {
+        ProductGraphNode<V> node = this.nodeIndex.get(Hasher.getThreadLocalTreeNodePairKey(vertex, state));
+        return new ListEdgeCursor<>(node == null ? Collections.emptyList() : node.getBackwardEdges(), false);
+    }
+
     /**
      * removes old edges from the productGraph, used during window management
      * @param minTimestamp lower bound of the window interval. Any edge whose timestamp is smaller will be removed
@@ -123,4 +175,46 @@ public class ProductGraph<V,L> {
 
     public void addMetricRegistry(MetricRegistry metricRegistry) {
     }
+
+    /**
+     * Cursor over an adjacency list
+     * @param <V>
+     */
+    private static class ListEdgeCursor<V> implements EdgeCursor<V> {
+
+        private final Iterator<GraphEdge<ProductGraphNode<V>>> edges;
+        private final boolean isForward;
+        private GraphEdge<ProductGraphNode<V>> edge;
+        private ProductGraphNode<V> endpoint;
+
+        private ListEdgeCursor(Collection<GraphEdge<ProductGraphNode<V>>> edges, boolean isForward) {
+            this.edges = edges.iterator();
+            this.isForward = isForward;
+        }
+
+        @Override
+        public boolean next() {
+            if(!edges.hasNext()) {
+                return false;
+            }
+            edge = edges.next();
+            endpoint = isForward ? edge.getTarget() : edge.getSource();
+            return true;
+        }
+
+        @Override
+        public V getVertex() {
+            return endpoint.getVertex();
+        }
+
+        @Override
+        public int getState() {
+            return endpoint.getState();
+        }
+
+        @Override
+        public long getTimestamp() {
+            return edge.getTimestamp();
+        }
+    }
 }
@@ -18,11 +18,19 @@ public class ProductGraphNode<V> {
     private int hash = 0;
 
     public ProductGraphNode(V vertex, int state) {
+        this(vertex, state, new ArrayDeque<>(Constants.EXPECTED_NEIGHBOURS), new ArrayDeque<>(Constants.EXPECTED_NEIGHBOURS));
+    }
+
+    /**
+     * Creates a node with given adjacency lists. Handles to nodes whose edges are not stored on the Java heap
+     * are created with <code>null</code> adjacency lists, and their edges must be retrieved through the {@link ProductGraph}
+     */
+    ProductGraphNode(V vertex, int state, Queue<GraphEdge<ProductGraphNode<V>>> forwardEdges, Queue<GraphEdge<ProductGraphNode<V>>> backwardEdges) {
         this.vertex = vertex;
         this.state = state;
 
-        this.forwardEdges = new ArrayDeque<>(Constants.EXPECTED_NEIGHBOURS);
-        this.backwardEdges = new ArrayDeque<>(Constants.EXPECTED_NEIGHBOURS);
+        this.forwardEdges = forwardEdges;
+        this.backwardEdges = backwardEdges;
     }
 
     public V getVertex() {
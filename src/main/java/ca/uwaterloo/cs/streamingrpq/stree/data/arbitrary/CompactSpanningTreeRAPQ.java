@@ -0,0 +1,385 @@
+package ca.uwaterloo.cs.streamingrpq.stree.data.arbitrary;
+
+import ca.uwaterloo.cs.streamingrpq.stree.data.*;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Constants;
+import ca.uwaterloo.cs.streamingrpq.stree.util.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Columnar spanning tree under arbitrary path semantics. A node is uniquely identified by its vertex-state pair, so
+ * nodes are ids into parallel primitive arrays of vertices, states, parents, timestamps and the intrusive sibling
+ * lists, and a primitive map indexes the ids by their vertex-state pairs. Ids of removed nodes are recycled.
+ *
+ * The tree does not keep an object per node: {@link CompactTreeNodeRAPQ} handles are created when nodes are passed to
+ * the expansion jobs and Delta, and they read and update the arrays in place.
+ * Maintenance follows {@link SpanningTreeRAPQ}, with the candidates marked by flags instead of hash sets.
+ */
+public class CompactSpanningTreeRAPQ extends SpanningTreeRAPQ<Integer> {
+
+    private static final int NIL = LongIntHashMap.NO_VALUE;
+    private static final int ROOT = 0;
+
+    // flags of the nodes during a maintenance, cleared once it completes
+    private static final byte CANDIDATE = 1;
+    private static final byte RECONNECTED = 2;
+    private static final byte VISITED = 4;
+
+    private int[] vertices;
+    // state of a free id is NIL, and the free ids are chained through the next sibling
+    private int[] states;
+    private int[] parents;
+    private long[] timestamps;
+    private int[] firstChildren;
+    private int[] previousSiblings;
+    private int[] nextSiblings;
+    private byte[] flags;
+
+    private final LongIntHashMap nodeIds;
+
+    // number of ids ever allocated, and the first free id
+    private int allocatedIds;
+    private int freeId;
+
+    // candidates of the current maintenance, nodes visited by its traversals and the traversal queue
+    private int[] candidateIds;
+    private int candidateCount;
+    private int[] visitedIds;
+    private int visitedCount;
+    private int[] queue;
+
+    protected CompactSpanningTreeRAPQ(Delta<Integer, SpanningTreeRAPQ<Integer>, TreeNodeRAPQ<Integer>> delta, int rootVertex, long timestamp) {
+        super(delta, timestamp);
+
+        int capacity = Constants.EXPECTED_TREE_SIZE;
+        vertices = new int[capacity];
+        states = new int[capacity];
+        parents = new int[capacity];
+        timestamps = new long[capacity];
+        firstChildren = new int[capacity];
+        previousSiblings = new int[capacity];
+        nextSiblings = new int[capacity];
+        flags = new byte[capacity];
+        nodeIds = new LongIntHashMap(capacity);
+        candidateIds = new int[capacity];
+        visitedIds = new int[capacity];
+        queue = new int[capacity];
+        freeId = NIL;
+
+        allocateNode(rootVertex, 0, NIL, timestamp);
+        this.rootNode = new CompactTreeNodeRAPQ(this, ROOT, rootVertex, 0);
+    }
+
+    @Override
+    public int getSize() {
+        return nodeIds.size();
+    }
+
+    /**
+     * @return number of bytes allocated by the arrays of the tree
+     */
+    public long getAllocatedBytes() {
+        long nodeBytes = (long) vertices.length * (6 * Integer.BYTES + Long.BYTES + Byte.BYTES);
+        long workBytes = (long) (candidateIds.length + visitedIds.length + queue.length) * Integer.BYTES;
+        return nodeBytes + workBytes + nodeIds.getAllocatedBytes();
+    }
+
+    @Override
+    public TreeNodeRAPQ<Integer> addNode(TreeNodeRAPQ<Integer> parentNode, Integer childVertex, int childState, long timestamp) {
+        int child = allocateNode(childVertex, childState, ((CompactTreeNodeRAPQ) parentNode).getId(), timestamp);
+        CompactTreeNodeRAPQ childNode = getNode(child);
+
+        // a new node is added to the spanning tree. update delta index
+        delta.addToTreeNodeIndex(this, childNode);
+        updateTimestamp(timestamp);
+
+        return childNode;
+    }
+
+    @Override
+    protected void removeNode(TreeNodeRAPQ<Integer> node) {
+        int id = ((CompactTreeNodeRAPQ) node).getId();
+        setParent(id, NIL);
+        delta.removeFromTreeIndex(node, this);
+        releaseNode(id);
+    }
+
+    @Override
+    public boolean exists(Integer vertex, int state) {
+        return nodeIds.containsKey(LongIntHashMap.pairKey(vertex, state));
+    }
+
+    @Override
+    public Collection<TreeNodeRAPQ<Integer>> getNodes(Integer vertex, int state) {
+        int id = nodeIds.get(LongIntHashMap.pairKey(vertex, state));
+        return id == NIL ? Collections.emptyList() : Collections.singletonList(getNode(id));
+    }
+
+    @Override
+    public boolean isExpired(long minTimestamp) {
+        for (int child = firstChildren[ROOT]; child != NIL; child = nextSiblings[child]) {
+            if (timestamps[child] > minTimestamp) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same search as {@link AbstractSpanningTree#removeOldEdges(long, ProductGraph)}, over the ids of the candidates
+     */
+    @Override
+    public <L> Collection<TreeNodeRAPQ<Integer>> removeOldEdges(long minTimestamp, ProductGraph<Integer, L> productGraph) {
+        //update the lowest minimum timestamp for this tree
+        this.minTimestamp = populateCandidateRemovals(minTimestamp);
+
+        LOG.debug("Expiry for spanning tree {}, # of candidates {} out of {} nodes", this, candidateCount, nodeIds.size());
+
+        for (int i = 0; i < candidateCount; i++) {
+            int candidate = candidateIds[i];
+            // check if a previous traversal already found a path for the candidate
+            if (timestamps[candidate] > minTimestamp) {
+                continue;
+            }
+            //check if there exists any incoming edge from a valid state
+            EdgeCursor<Integer> backwardEdges = productGraph.getBackwardEdgeCursor(vertices[candidate], states[candidate]);
+            int newParent = NIL;
+            long newParentEdgeTimestamp = 0;
+            while (backwardEdges.next()) {
+                int newParentCandidate = nodeIds.get(LongIntHashMap.pairKey(backwardEdges.getVertex(), backwardEdges.getState()));
+                if (newParentCandidate != NIL && ((flags[newParentCandidate] & CANDIDATE) == 0 || (flags[newParentCandidate] & RECONNECTED) != 0)) {
+                    newParent = newParentCandidate;
+                    newParentEdgeTimestamp = backwardEdges.getTimestamp();
+                    break;
+                }
+            }
+
+            if (newParent != NIL) {
+                setParent(candidate, newParent);
+                setTimestamp(candidate, Long.min(timestamps[newParent], newParentEdgeTimestamp));
+                flags[candidate] |= RECONNECTED;
+
+                // traverse the product graph down from the candidate, and reconnect any candidate that is visited
+                int head = 0;
+                int tail = enqueue(0, candidate);
+                while (head < tail) {
+                    int current = queue[head++];
+                    if ((flags[current] & VISITED) == 0) {
+                        flags[current] |= VISITED;
+                        visitedIds = append(visitedIds, visitedCount++, current);
+                    }
+
+                    EdgeCursor<Integer> forwardEdges = productGraph.getForwardEdgeCursor(vertices[current], states[current]);
+                    while (forwardEdges.next()) {
+                        long forwardEdgeTimestamp = forwardEdges.getTimestamp();
+                        int child = nodeIds.get(LongIntHashMap.pairKey(forwardEdges.getVertex(), forwardEdges.getState()));
+                        if (child != NIL && forwardEdgeTimestamp > minTimestamp && (flags[child] & VISITED) == 0) {
+                            if ((flags[child] & CANDIDATE) != 0) {
+                                flags[child] |= RECONNECTED;
+                            }
+                            if (timestamps[child] < Long.min(timestamps[current], forwardEdgeTimestamp)) {
+                                setParent(child, current);
+                                setTimestamp(child, Long.min(timestamps[current], forwardEdgeTimestamp));
+                                tail = enqueue(tail, child);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        // the remaining candidates are not reachable, they are detached from their parents before any of them is released
+        List<TreeNodeRAPQ<Integer>> removedNodes = new ArrayList<>();
+        for (int i = 0; i < candidateCount; i++) {
+            int candidate = candidateIds[i];
+            if ((flags[candidate] & RECONNECTED) == 0) {
+                removedNodes.add(getNode(candidate));
+                setParent(candidate, NIL);
+            }
+            flags[candidate] = 0;
+        }
+        for (int i = 0; i < visitedCount; i++) {
+            flags[visitedIds[i]] = 0;
+        }
+        candidateCount = 0;
+        visitedCount = 0;
+        for (TreeNodeRAPQ<Integer> removedNode : removedNodes) {
+            delta.removeFromTreeIndex(removedNode, this);
+            releaseNode(((CompactTreeNodeRAPQ) removedNode).getId());
+        }
+
+        if (this.isExpired(minTimestamp)) {
+            delta.removeTree(this);
+        }
+
+        LOG.debug("Spanning tree rooted at {}, remove {} nodes at timestamp {} ", getRootVertex(), removedNodes.size(), minTimestamp);
+
+        return removedNodes;
+    }
+
+    @Override
+    protected long populateCandidateRemovals(long minTimestamp) {
+        // find the lowest timestamp in the tree higher than the minTimestamp for the next maintenance
+        long minimumValidTimestamp = Long.MAX_VALUE;
+        int head = 0;
+        int tail = 0;
+        for (int child = firstChildren[ROOT]; child != NIL; child = nextSiblings[child]) {
+            tail = enqueue(tail, child);
+        }
+
+        while (head < tail) {
+            int current = queue[head++];
+            for (int child = firstChildren[current]; child != NIL; child = nextSiblings[child]) {
+                tail = enqueue(tail, child);
+            }
+
+            if (timestamps[current] <= minTimestamp) {
+                flags[current] |= CANDIDATE;
+                candidateIds = append(candidateIds, candidateCount++, current);
+            } else if (timestamps[current] < minimumValidTimestamp) {
+                minimumValidTimestamp = timestamps[current];
+            }
+        }
+
+        return minimumValidTimestamp;
+    }
+
+    /**
+     * @param id
+     * @return handle of the node, the root has a single handle so that it can be compared by reference
+     */
+    CompactTreeNodeRAPQ getNode(int id) {
+        if (id == NIL) {
+            return null;
+        } else if (id == ROOT) {
+            return (CompactTreeNodeRAPQ) rootNode;
+        }
+        return new CompactTreeNodeRAPQ(this, id, vertices[id], states[id]);
+    }
+
+    long getTimestamp(int id) {
+        return timestamps[id];
+    }
+
+    void setTimestamp(int id, long timestamp) {
+        timestamps[id] = timestamp;
+        updateTimestamp(timestamp);
+    }
+
+    /**
+     * Sets the timestamp of the node to Long.MIN_VALUE without updating the timestamp of the tree
+     * @param id
+     */
+    void setDeleted(int id) {
+        timestamps[id] = Long.MIN_VALUE;
+    }
+
+    int getParent(int id) {
+        return parents[id];
+    }
+
+    int getFirstChild(int id) {
+        return firstChildren[id];
+    }
+
+    int getNextSibling(int id) {
+        return nextSiblings[id];
+    }
+
+    /**
+     * Moves the node from the children of its parent to the children of the new parent
+     * @param id
+     * @param parent new parent, <code>NIL</code> only if the node is removed
+     */
+    void setParent(int id, int parent) {
+        int previousParent = parents[id];
+        if (previousParent != NIL) {
+            int previousSibling = previousSiblings[id];
+            int nextSibling = nextSiblings[id];
+            if (previousSibling != NIL) {
+                nextSiblings[previousSibling] = nextSibling;
+            } else {
+                firstChildren[previousParent] = nextSibling;
+            }
+            if (nextSibling != NIL) {
+                previousSiblings[nextSibling] = previousSibling;
+            }
+        }
+        parents[id] = parent;
+        previousSiblings[id] = NIL;
+        nextSiblings[id] = NIL;
+        if (parent != NIL) {
+            int firstChild = firstChildren[parent];
+            nextSiblings[id] = firstChild;
+            if (firstChild != NIL) {
+                previousSiblings[firstChild] = id;
+            }
+            firstChildren[parent] = id;
+        }
+    }
+
+    private int allocateNode(int vertex, int state, int parent, long timestamp) {
+        int id;
+        if (freeId != NIL) {
+            id = freeId;
+            freeId = nextSiblings[id];
+        } else {
+            id = allocatedIds++;
+            if (id == vertices.length) {
+                grow();
+            }
+        }
+        vertices[id] = vertex;
+        states[id] = state;
+        timestamps[id] = timestamp;
+        parents[id] = NIL;
+        firstChildren[id] = NIL;
+        previousSiblings[id] = NIL;
+        nextSiblings[id] = NIL;
+        flags[id] = 0;
+        setParent(id, parent);
+        nodeIds.put(LongIntHashMap.pairKey(vertex, state), id);
+        return id;
+    }
+
+    /**
+     * Removes the node from the index and returns its id to the free list, the node must be detached from its parent
+     * @param id
+     */
+    private void releaseNode(int id) {
+        nodeIds.remove(LongIntHashMap.pairKey(vertices[id], states[id]));
+        states[id] = NIL;
+        flags[id] = 0;
+        nextSiblings[id] = freeId;
+        freeId = id;
+    }
+
+    private int enqueue(int tail, int id) {
+        queue = append(queue, tail, id);
+        return tail + 1;
+    }
+
+    private void grow() {
+        int capacity = vertices.length * 2;
+        vertices = Arrays.copyOf(vertices, capacity);
+        states = Arrays.copyOf(states, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        previousSiblings = Arrays.copyOf(previousSiblings, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+
+    private static int[] append(int[] array, int position, int value) {
+        if (position == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[position] = value;
+        return array;
+    }
+}
@@ -0,0 +1,84 @@
+package ca.uwaterloo.cs.streamingrpq.stree.data.arbitrary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Handle of a node of a {@link CompactSpanningTreeRAPQ}. Timestamp and tree edges are read from and written to the
+ * arrays of the tree, vertex and state are copied into the handle so that a removed node can still be identified
+ */
+public class CompactTreeNodeRAPQ extends TreeNodeRAPQ<Integer> {
+
+    private final CompactSpanningTreeRAPQ tree;
+    private final int id;
+
+    protected CompactTreeNodeRAPQ(CompactSpanningTreeRAPQ tree, int id, int vertex, int state) {
+        super(vertex, state, null, tree, Long.MIN_VALUE);
+        this.tree = tree;
+        this.id = id;
+    }
+
+    /**
+     * @return position of the node in the arrays of its tree, reused once the node is removed
+     */
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return tree.getTimestamp(id);
+    }
+
+    @Override
+    public void setTimestamp(long timestamp) {
+        tree.setTimestamp(id, timestamp);
+    }
+
+    @Override
+    public void setDeleted() {
+        tree.setDeleted(id);
+    }
+
+    @Override
+    public TreeNodeRAPQ<Integer> getParent() {
+        return tree.getNode(tree.getParent(id));
+    }
+
+    @Override
+    public void setParent(TreeNodeRAPQ<Integer> parent) {
+        tree.setParent(id, parent == null ? -1 : ((CompactTreeNodeRAPQ) parent).id);
+    }
+
+    @Override
+    public TreeNodeRAPQ<Integer> getFirstChild() {
+        return tree.getNode(tree.getFirstChild(id));
+    }
+
+    @Override
+    public TreeNodeRAPQ<Integer> getNextSibling() {
+        return tree.getNode(tree.getNextSibling(id));
+    }
+
+    @Override
+    public Collection<TreeNodeRAPQ<Integer>> getChildren() {
+        List<TreeNodeRAPQ<Integer>> children = new ArrayList<>();
+        for(TreeNodeRAPQ<Integer> child = getFirstChild(); child != null; child = child.getNextSibling()) {
+            children.add(child);
+        }
+        return children;
+    }
+
+    @Override
+    public void addChildren(TreeNodeRAPQ<Integer> child) {
+        child.setParent(this);
+    }
+
+    @Override
+    protected void removeChild(TreeNodeRAPQ<Integer> child) {
+        if(equals(child.getParent())) {
+            child.setParent(null);
+        }
+    }
+}
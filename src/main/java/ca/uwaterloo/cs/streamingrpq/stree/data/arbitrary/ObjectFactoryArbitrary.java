@@ -5,16 +5,71 @@ import ca.uwaterloo.cs.streamingrpq.stree.engine.AbstractTreeExpansionJob;
 import ca.uwaterloo.cs.streamingrpq.stree.engine.TreeNodeRAPQTreeExpansionJob;
 import ca.uwaterloo.cs.streamingrpq.stree.query.Automata;
 
+import ca.uwaterloo.cs.streamingrpq.stree.util.Constants;
+
+import java.util.ArrayDeque;
 import java.util.Queue;
 import java.util.Set;
 
 public class ObjectFactoryArbitrary<V> implements ObjectFactory<V, SpanningTreeRAPQ<V>, TreeNodeRAPQ<V>> {
+
+    // nodes are created by expansion jobs on the main thread or the executor threads, and released by the expiry jobs on
+    // the executor threads. Released nodes are collected in a pool shared by all threads, and each thread moves them
+    // in batches through a local pool so that the shared pool is not locked for every node
+    private final TreeNodeRAPQ<V>[] sharedPool = new TreeNodeRAPQ[Constants.TREE_NODE_POOL_SIZE];
+    private int sharedPoolSize = 0;
+    private final ThreadLocal<ArrayDeque<TreeNodeRAPQ<V>>> localPool = ThreadLocal.withInitial(() -> new ArrayDeque<>(2 * Constants.TREE_NODE_POOL_BATCH_SIZE));
+
     @Override
     public TreeNodeRAPQ<V> createTreeNode(SpanningTreeRAPQ<V> tree, V vertex, int state, TreeNodeRAPQ<V> parentNode, long timestamp) {
-        TreeNodeRAPQ<V> child = new TreeNodeRAPQ<V>(vertex, state, parentNode, tree, timestamp);
+        ArrayDeque<TreeNodeRAPQ<V>> pool = localPool.get();
+        if(pool.isEmpty()) {
+            takeBatch(pool);
+        }
+        TreeNodeRAPQ<V> child = pool.poll();
+        if(child == null) {
+            child = new TreeNodeRAPQ<V>(vertex, state, parentNode, tree, timestamp);
+        } else {
+            child.reinitialize(vertex, state, parentNode, tree, timestamp);
+        }
         return child;
     }
 
+    @Override
+    public void releaseTreeNode(TreeNodeRAPQ<V> node) {
+        ArrayDeque<TreeNodeRAPQ<V>> pool = localPool.get();
+        pool.push(node);
+        if(pool.size() >= 2 * Constants.TREE_NODE_POOL_BATCH_SIZE) {
+            returnBatch(pool);
+        }
+    }
+
+    /**
+     * Moves a batch of nodes from the shared pool to the local pool of the allocating thread
+     * @param pool
+     */
+    private synchronized void takeBatch(ArrayDeque<TreeNodeRAPQ<V>> pool) {
+        int batchEnd = Math.max(0, sharedPoolSize - Constants.TREE_NODE_POOL_BATCH_SIZE);
+        while(sharedPoolSize > batchEnd) {
+            pool.push(sharedPool[--sharedPoolSize]);
+            sharedPool[sharedPoolSize] = null;
+        }
+    }
+
+    /**
+     * Moves a batch of nodes from the local pool of the releasing thread to the shared pool, nodes that do not fit into
+     * the shared pool are left to the garbage collector
+     * @param pool
+     */
+    private synchronized void returnBatch(ArrayDeque<TreeNodeRAPQ<V>> pool) {
+        for(int i = 0; i < Constants.TREE_NODE_POOL_BATCH_SIZE; i++) {
+            TreeNodeRAPQ<V> node = pool.poll();
+            if(sharedPoolSize < sharedPool.length) {
+                sharedPool[sharedPoolSize++] = node;
+            }
+        }
+    }
+
     @Override
     public SpanningTreeRAPQ<V> createSpanningTree(Delta<V, SpanningTreeRAPQ<V>, TreeNodeRAPQ<V>> delta, V vertex, long timestamp) {
         return new SpanningTreeRAPQ<V>(delta, vertex, timestamp);
@@ -0,0 +1,25 @@
+package ca.uwaterloo.cs.streamingrpq.stree.data.arbitrary;
+
+import ca.uwaterloo.cs.streamingrpq.stree.data.Delta;
+
+/**
+ * Creates {@link CompactSpanningTreeRAPQ}s, which store their nodes in arrays and create the node handles themselves
+ */
+public class ObjectFactoryCompact extends ObjectFactoryArbitrary<Integer> {
+
+    @Override
+    public TreeNodeRAPQ<Integer> createTreeNode(SpanningTreeRAPQ<Integer> tree, Integer vertex, int state, TreeNodeRAPQ<Integer> parentNode, long timestamp) {
+        // compact trees add their nodes into their arrays, see CompactSpanningTreeRAPQ#addNode
+        throw new UnsupportedOperationException("Nodes of compact trees are created by their trees");
+    }
+
+    @Override
+    public void releaseTreeNode(TreeNodeRAPQ<Integer> node) {
+        // handles are not recycled, the ids of removed nodes are reused by their trees
+    }
+
+    @Override
+    public SpanningTreeRAPQ<Integer> createSpanningTree(Delta<Integer, SpanningTreeRAPQ<Integer>, TreeNodeRAPQ<Integer>> delta, Integer vertex, long timestamp) {
+        return new CompactSpanningTreeRAPQ(delta, vertex, timestamp);
+    }
+}
@@ -15,26 +15,35 @@ public class SpanningTreeRAPQ<V> extends AbstractSpanningTree<V, SpanningTreeRAP
         this.rootNode = root;
         this.delta = delta;
         nodeIndex.put(Hasher.createTreeNodePairKey(rootVertex, 0), root);
+    }
 
-        candidates = new HashSet<>(Constants.EXPECTED_TREE_SIZE);
-        candidateRemoval = new HashSet<>(Constants.EXPECTED_TREE_SIZE);
-        visited = new HashSet<>(Constants.EXPECTED_TREE_SIZE);
+    /**
+     * Creates a tree without a root, for trees that store their nodes in an alternative storage
+     * @param delta
+     * @param timestamp
+     */
+    protected SpanningTreeRAPQ(Delta<V, SpanningTreeRAPQ<V>, TreeNodeRAPQ<V>> delta, long timestamp) {
+        super(delta, timestamp);
     }
 
     @Override
     protected long populateCandidateRemovals(long minTimestamp) {
         // perform a bfs traversal on tree, no need for visited as it is a three
-        LinkedList<TreeNodeRAPQ<V>> queue = new LinkedList<>();
+        ArrayDeque<TreeNodeRAPQ<V>> queue = new ArrayDeque<>();
 
         // minTimestamp of the tree should be updated, find the lowest timestamp in the tree higher than the minTimestmap
         // because after this maintenance, there is not going to be a node in the tree lower than the minTimestamp
         long minimumValidTimetamp = Long.MAX_VALUE;
-        queue.addAll(rootNode.getChildren());
+        for(TreeNodeRAPQ<V> child = rootNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+            queue.add(child);
+        }
 
         while(!queue.isEmpty()) {
             // populate the queue with children
             TreeNodeRAPQ<V> currentVertex = queue.remove();
-            queue.addAll(currentVertex.getChildren());
+            for(TreeNodeRAPQ<V> child = currentVertex.getFirstChild(); child != null; child = child.getNextSibling()) {
+                queue.add(child);
+            }
 
             // check time timestamp to decide whether it is expired
             if(currentVertex.getTimestamp() <= minTimestamp) {
@@ -20,6 +20,20 @@ public class TreeNodeRAPQ<V> extends AbstractTreeNode<V, SpanningTreeRAPQ<V>, Tr
         }
     }
 
+    /**
+     * Reuses a removed node for a new tree node, see {@link ObjectFactoryArbitrary}
+     */
+    protected void reinitialize(V vertex, int state, TreeNodeRAPQ<V> parent, SpanningTreeRAPQ<V> t, long timestamp) {
+        super.reinitialize(vertex, state, parent, timestamp);
+
+        this.tree = t;
+        // cached hash belongs to the previous vertex-state pair
+        this.hash = 0;
+        if(parent != null) {
+            this.parent.addChildren(this);
+        }
+    }
+
     @Override
     public SpanningTreeRAPQ<V> getTree() {
         return tree;
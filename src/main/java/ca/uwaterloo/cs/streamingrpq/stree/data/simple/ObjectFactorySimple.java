@@ -15,6 +15,11 @@ public class ObjectFactorySimple<V> implements ObjectFactory<V, SpanningTreeRSPQ
         return child;
     }
 
+    @Override
+    public void releaseTreeNode(TreeNodeRSPQ<V> node) {
+        // nodes carry the markings of their path, which are copied from the parent at creation, so they are not recycled
+    }
+
     @Override
     public SpanningTreeRSPQ<V> createSpanningTree(Delta<V, SpanningTreeRSPQ<V>, TreeNodeRSPQ<V>> delta, V vertex, long timestamp) {
         return new SpanningTreeRSPQ<V>(delta, vertex, timestamp);
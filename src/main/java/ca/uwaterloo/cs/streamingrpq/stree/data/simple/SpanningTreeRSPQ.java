@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 public class SpanningTreeRSPQ<V> extends AbstractSpanningTree<V, SpanningTreeRSPQ<V>, TreeNodeRSPQ<V>> {
 
@@ -21,13 +22,8 @@ public class SpanningTreeRSPQ<V> extends AbstractSpanningTree<V, SpanningTreeRSP
         super(timestamp, delta);
 
         this.rootNode = new TreeNodeRSPQ<V>(rootVertex, 0, null, this, timestamp);
-        this.nodeIndex = HashMultimap.create(Constants.EXPECTED_TREE_SIZE, Constants.EXPECTED_LABELS);
         nodeIndex.put(Hasher.createTreeNodePairKey(rootVertex, 0), rootNode);
         this.markings = Sets.newHashSet();
-
-        candidates = new HashSet<>(Constants.EXPECTED_TREE_SIZE);
-        candidateRemoval = new HashSet<>(Constants.EXPECTED_TREE_SIZE);
-        visited = new HashSet<>(Constants.EXPECTED_TREE_SIZE);
     }
 
     public void addMarking(V vertex, int state) {
@@ -46,8 +42,9 @@ public class SpanningTreeRSPQ<V> extends AbstractSpanningTree<V, SpanningTreeRSP
      * Implements unmarking procedure for nodes with conflicts
      * @param productGraph
      * @param parentNode
+     * @param nodeListener called for each node added by the expansion, <code>null</code> if nodes are not reported
      */
-    protected <L> void unmark(ProductGraph<V, L> productGraph, TreeNodeRSPQ<V> parentNode) {
+    public <L> void unmark(ProductGraph<V, L> productGraph, TreeNodeRSPQ<V> parentNode, Consumer<TreeNodeRSPQ<V>> nodeListener) {
 
         Stack<TreeNodeRSPQ<V>> unmarkedNodes = new Stack<>();
 
@@ -65,55 +62,200 @@ public class SpanningTreeRSPQ<V> extends AbstractSpanningTree<V, SpanningTreeRSP
             currentNode =  unmarkedNodes.pop();
 
             // get backward edges of the unmarked node
-            Collection<GraphEdge<ProductGraphNode<V>>> backwardEdges = productGraph.getBackwardEdges(currentNode.getVertex(), currentNode.getState());
-            for (GraphEdge<ProductGraphNode<V>> backwardEdge : backwardEdges) {
-                V sourceVertex = backwardEdge.getSource().getVertex();
-                int sourceState = backwardEdge.getSource().getState();
+            EdgeCursor<V> backwardEdges = productGraph.getBackwardEdgeCursor(currentNode.getVertex(), currentNode.getState());
+            while (backwardEdges.next()) {
                 // find all the nodes that are pruned due to previously marking
-                Collection<TreeNodeRSPQ<V>> parentNodes = this.getNodes(sourceVertex, sourceState);
-                for (TreeNodeRSPQ<V> p : parentNodes) {
-                    // force casting
-                    TreeNodeRSPQ<V> parent =  p;
+                // copy as expansion might add new nodes for the same pair
+                List<TreeNodeRSPQ<V>> parentNodes = new ArrayList<>(this.getNodes(backwardEdges.getVertex(), backwardEdges.getState()));
+                for (TreeNodeRSPQ<V> parent : parentNodes) {
                     // try to extend if it is not a cycle in the product graph
                     if (!parent.containsCM(currentNode.getVertex(), currentNode.getState())) {
-                        extendPrefixPath(productGraph, parent, currentNode.getVertex(), currentNode.getState(), backwardEdge.getTimestamp());
+                        extendPrefixPath(productGraph, parent, currentNode.getVertex(), currentNode.getState(), backwardEdges.getTimestamp(), nodeListener);
                     }
                 }
             }
         }
     }
 
-    protected <L> void extendPrefixPath(ProductGraph<V, L> productGraph, TreeNodeRSPQ<V> parentNode, V targetVertex, int targetState, long edgeTimestamp) {
+    /**
+     * Extends the tree with the transition from the given node, and recursively expands the new node through the
+     * forward edges in the product graph. Expansion jobs report the new nodes in final states as results, and
+     * {@link #reconnect(ProductGraph, List)} restores the nodes that are reachable through other paths after a removal
+     * without reporting them
+     * @param productGraph
+     * @param parentNode tree node as the source of the transition
+     * @param targetVertex
+     * @param targetState
+     * @param edgeTimestamp
+     * @param nodeListener called for each node added by the expansion, <code>null</code> if nodes are not reported
+     */
+    public <L> void extendPrefixPath(ProductGraph<V, L> productGraph, TreeNodeRSPQ<V> parentNode, V targetVertex, int targetState, long edgeTimestamp,
+                                     Consumer<TreeNodeRSPQ<V>> nodeListener) {
+        if(!productGraph.getAutomata().hasContainment(parentNode.getFirstCM(targetVertex), targetState)) {
+            // detected conflict parent node needs to be unmarked
+            unmark(productGraph, parentNode, nodeListener);
+            return;
+        }
+
+        // unmarking traverses the edges that are already expanded from the parent, the path is in the tree
+        for(TreeNodeRSPQ<V> child = parentNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if(child.getVertex().equals(targetVertex) && child.getState() == targetState) {
+                return;
+            }
+        }
 
+        // if this is the first target product node is visited, simply add it to the markings
+        if(!this.exists(targetVertex, targetState)) {
+            this.addMarking(targetVertex, targetState);
+        }
+
+        TreeNodeRSPQ<V> childNode;
+        if(parentNode == rootNode) {
+            childNode = this.addNode(parentNode, targetVertex, targetState, edgeTimestamp);
+            parentNode.setTimestamp(edgeTimestamp);
+        } else {
+            childNode = this.addNode(parentNode, targetVertex, targetState, Long.min(parentNode.getTimestamp(), edgeTimestamp));
+        }
+        if(nodeListener != null) {
+            nodeListener.accept(childNode);
+        }
+
+        EdgeCursor<V> forwardEdges = productGraph.getForwardEdgeCursor(targetVertex, targetState);
+        while(forwardEdges.next()) {
+            V nextVertex = forwardEdges.getVertex();
+            int nextState = forwardEdges.getState();
+            if(!childNode.containsCM(nextVertex, nextState) && !this.isMarked(nextVertex, nextState)) {
+                // visit a node only if that same node is not visited at the same state before
+                // simply prevent cycles in product graph
+                extendPrefixPath(productGraph, childNode, nextVertex, nextState, forwardEdges.getTimestamp(), nodeListener);
+            }
+        }
     }
 
+    /**
+     * Removes the entire subtree of the given node, used to process explicit deletions.
+     * Markings of the vertex-state pairs that do not have any remaining node in the tree are cleared, so that they
+     * can be reached again through other paths with {@link #reconnect(ProductGraph, List)}
+     * @param subtreeRoot
+     * @return removed nodes, in BFS order from the <code>subtreeRoot</code>
+     */
+    public List<TreeNodeRSPQ<V>> removeSubtree(TreeNodeRSPQ<V> subtreeRoot) {
+        List<TreeNodeRSPQ<V>> removedNodes = new ArrayList<>();
+        removedNodes.add(subtreeRoot);
+        for(int i = 0; i < removedNodes.size(); i++) {
+            for(TreeNodeRSPQ<V> child = removedNodes.get(i).getFirstChild(); child != null; child = child.getNextSibling()) {
+                removedNodes.add(child);
+            }
+        }
+
+        for(TreeNodeRSPQ<V> removedNode : removedNodes) {
+            this.removeNode(removedNode);
+            if(!this.exists(removedNode.getVertex(), removedNode.getState())) {
+                this.removeMarking(removedNode.getVertex(), removedNode.getState());
+            }
+        }
+
+        return removedNodes;
+    }
+
+    /**
+     * A removed vertex-state pair might have blocked the expansion through other paths, either as it was marked or as
+     * the expansion of its other nodes detected a conflict.
+     * Traverses the backward edges of the removed pairs in top-down order, and expands the tree from remaining nodes
+     * @param productGraph expired or deleted edges must already be removed
+     * @param removedNodes nodes removed with {@link #removeSubtree(TreeNodeRSPQ)}
+     */
+    public <L> void reconnect(ProductGraph<V, L> productGraph, List<TreeNodeRSPQ<V>> removedNodes) {
+        for(TreeNodeRSPQ<V> removedNode : removedNodes) {
+            V removedVertex = removedNode.getVertex();
+            int removedState = removedNode.getState();
+            if(this.isMarked(removedVertex, removedState)) {
+                // already restored, a marked pair has a single node
+                continue;
+            }
+            // remaining nodes of the pair are not marked after a conflict, and the removed path might have blocked
+            // the expansion through another prefix that is conflict free
+            EdgeCursor<V> backwardEdges = productGraph.getBackwardEdgeCursor(removedVertex, removedState);
+            while(backwardEdges.next()) {
+                // copy as expansion might add new nodes for the same pair
+                List<TreeNodeRSPQ<V>> parentNodes = new ArrayList<>(this.getNodes(backwardEdges.getVertex(), backwardEdges.getState()));
+                for(TreeNodeRSPQ<V> parent : parentNodes) {
+                    if(!parent.containsCM(removedVertex, removedState) && !this.isMarked(removedVertex, removedState)) {
+                        extendPrefixPath(productGraph, parent, removedVertex, removedState, backwardEdges.getTimestamp(), null);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Under simple path semantics a node cannot be moved under another parent as its markings depend on its path.
+     * Instead, expired subtrees are removed and the removed pairs are reconnected through valid paths
+     * @param minTimestamp lower bound of the window interval. Any edge whose timestamp is smaller will be removed
+     * @param productGraph
+     * @return nodes whose vertex-state pair is not in the tree anymore
+     */
+    @Override
+    public <L> Collection<TreeNodeRSPQ<V>> removeOldEdges(long minTimestamp, ProductGraph<V, L> productGraph) {
+        candidates.clear();
+        this.minTimestamp = populateCandidateRemovals(minTimestamp);
+
+        LOG.debug("Expiry for spanning tree {}, # of expired subtrees {} out of {} nodes", toString(), candidates.size(), nodeIndex.size());
+
+        List<TreeNodeRSPQ<V>> removedNodes = new ArrayList<>();
+        for(TreeNodeRSPQ<V> expiredNode : candidates) {
+            removedNodes.addAll(removeSubtree(expiredNode));
+        }
+        reconnect(productGraph, removedNodes);
+
+        List<TreeNodeRSPQ<V>> expiredNodes = new ArrayList<>();
+        for(TreeNodeRSPQ<V> removedNode : removedNodes) {
+            if(!this.exists(removedNode.getVertex(), removedNode.getState())) {
+                expiredNodes.add(removedNode);
+            }
+        }
+
+        if(this.isExpired(minTimestamp)) {
+            delta.removeTree(this);
+        }
+
+        LOG.debug("Spanning tree rooted at {}, remove {} nodes at timestamp {} ", getRootVertex(), removedNodes.size(), minTimestamp);
+
+        return expiredNodes;
+    }
+
+    /**
+     * Timestamps are non-increasing from root to leaves, so only the top-most expired nodes are collected as candidates,
+     * each representing its entire subtree
+     * @param minTimestamp
+     * @return
+     */
     @Override
     protected long populateCandidateRemovals(long minTimestamp) {
         // perform a bfs traversal on tree, no need for visited as it is a three
-        LinkedList<TreeNodeRSPQ<V>> queue = new LinkedList<>();
+        ArrayDeque<TreeNodeRSPQ<V>> queue = new ArrayDeque<>();
         // minTimestamp of the tree should be updated, find the lowest timestamp in the tree higher than the minTimestmap
         // because after this maintenance, there is not going to be a node in the tree lower than the minTimestamp
         long minimumValidTimetamp = Long.MAX_VALUE;
-        queue.addAll(rootNode.getChildren());
+        for(TreeNodeRSPQ<V> child = rootNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+            queue.add(child);
+        }
         while(!queue.isEmpty()) {
-            // populate the queue with children
             TreeNodeRSPQ<V> currentVertex = queue.remove();
-            queue.addAll(currentVertex.getChildren());
 
             // check time timestamp to decide whether it is expired
             if(currentVertex.getTimestamp() <= minTimestamp) {
-                // if node is unmarked simply remove it here
-                if(this.isMarked(currentVertex.getVertex(), currentVertex.getState())) {
-                    // unmarked nodes are guarenteed to have no cross-edges
-                    this.removeNode(currentVertex);
-                } else {
-                    // marked nodes are just candidate for removal
-                    candidates.add(currentVertex);
-                }
+                // entire subtree is expired
+                candidates.add(currentVertex);
+                continue;
+            }
 
+            // populate the queue with children
+            for(TreeNodeRSPQ<V> child = currentVertex.getFirstChild(); child != null; child = child.getNextSibling()) {
+                queue.add(child);
             }
             // find minValidTimestamp for filtering for the next maintenance window
-            if(currentVertex.getTimestamp() > minTimestamp && currentVertex.getTimestamp() < minimumValidTimetamp) {
+            if(currentVertex.getTimestamp() < minimumValidTimetamp) {
                 minimumValidTimetamp = currentVertex.getTimestamp();
             }
         }
@@ -7,10 +7,13 @@ import com.google.common.collect.SetMultimap;
 
 import java.util.Map;
 
+/**
+ * Node of a spanning tree under simple path semantics. A tree might have several nodes for the same vertex-state pair
+ * with identical markings through different paths, so nodes are compared by identity
+ * @param <V> type of vertex identifiers
+ */
 public class TreeNodeRSPQ<V> extends AbstractTreeNode<V, SpanningTreeRSPQ<V>, TreeNodeRSPQ<V>> {
 
-    private int hash = 0;
-
     SpanningTreeRSPQ<V> tree;
 
     private Map<V, Integer> firstMarkings;
@@ -34,6 +37,10 @@ public class TreeNodeRSPQ<V> extends AbstractTreeNode<V, SpanningTreeRSPQ<V>, Tr
         // populate with root node
         this.firstMarkings.putIfAbsent(vertex, state);
         this.currentMarkings.put(vertex, state);
+
+        if(parent != null) {
+            this.parent.addChildren(this);
+        }
     }
 
     @Override
@@ -61,33 +68,4 @@ public class TreeNodeRSPQ<V> extends AbstractTreeNode<V, SpanningTreeRSPQ<V>, Tr
         return firstMarkings.get(vertex);
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (o == this) return true;
-        if (!(o instanceof TreeNodeRSPQ)) {
-            return false;
-        }
-
-        TreeNodeRSPQ tuple = (TreeNodeRSPQ) o;
-
-        return tuple.vertex.equals(vertex) &&
-                tuple.state == state &&
-                tuple.firstMarkings.equals(firstMarkings) &&
-                tuple.currentMarkings.equals(currentMarkings);
-    }
-
-    @Override
-    public int hashCode() {
-        int h = hash;
-        if(h == 0) {
-            h = 17;
-            h = 31 * h + vertex.hashCode();
-            h = 31 * h + state;
-            h = 31 * h + firstMarkings.hashCode();
-            h = 31 * h + currentMarkings.hashCode();
-            hash = h;
-        }
-        return h;
-    }
-
 }
@@ -4,6 +4,7 @@ import ca.uwaterloo.cs.streamingrpq.stree.data.*;
 import ca.uwaterloo.cs.streamingrpq.stree.query.Automata;
 import ca.uwaterloo.cs.streamingrpq.stree.util.Constants;
 
+import java.util.Arrays;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -65,6 +66,19 @@ public abstract class AbstractTreeExpansionJob<L, T extends AbstractSpanningTree
         return true;
     }
 
+    /**
+     * Clears the batch so that this job can be reused for another batch instead of allocating a new one
+     * @param isDeletion whether the next batch is an explicit deletion
+     */
+    public void reset(boolean isDeletion) {
+        // drop references so that pooled jobs do not retain removed trees
+        Arrays.fill(this.spanningTree, 0, currentSize, null);
+        Arrays.fill(this.parentNode, 0, currentSize, null);
+        this.isDeletion = isDeletion;
+        this.currentSize = 0;
+        this.resultCount = 0;
+    }
+
     /**
      * Determines whether the current batch is full
      * @return
@@ -0,0 +1,148 @@
+package ca.uwaterloo.cs.streamingrpq.stree.engine;
+
+import ca.uwaterloo.cs.streamingrpq.stree.data.*;
+import ca.uwaterloo.cs.streamingrpq.stree.query.Automata;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Constants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+
+/**
+ * Builds a batch of freshly created spanning trees directly from a populated product graph.
+ * Each tree is constructed with a single best-first traversal from its root that always expands the pending
+ * transition with the youngest path timestamp, so every node is created exactly once with its final timestamp and
+ * parent under arbitrary path semantics. It avoids the repeated timestamp updates and re-parenting that incremental
+ * <code>processTransition</code> performs when edges are streamed one by one.
+ *
+ * The product graph must not be modified while the job runs; traversal only reads the graph through
+ * {@link EdgeCursor}s, so concurrent jobs over different trees are safe.
+ * @param <L> type of edge labels
+ * @param <T> type of spanning trees, only the trees of arbitrary path semantics are valid
+ * @param <N> type of tree nodes
+ */
+public class RAPQSpanningTreeBulkLoadJob<L, T extends AbstractSpanningTree<Integer, T, N>, N extends AbstractTreeNode<Integer, T, N>> implements Callable<Integer> {
+
+    private ProductGraph<Integer, L> productGraph;
+    private Automata<L> automata;
+
+    private List<T> spanningTrees;
+    private List<ProductGraphNode<Integer>> rootNodes;
+
+    private List<ResultPair<Integer>> results;
+
+    public RAPQSpanningTreeBulkLoadJob(ProductGraph<Integer, L> productGraph, Automata<L> automata) {
+        this.productGraph = productGraph;
+        this.automata = automata;
+        this.spanningTrees = new ArrayList<>(Constants.EXPECTED_BATCH_SIZE);
+        this.rootNodes = new ArrayList<>(Constants.EXPECTED_BATCH_SIZE);
+        this.results = new ArrayList<>();
+    }
+
+    /**
+     * Adds a tree to be populated by this job
+     * @param spanningTree an empty spanning tree that only contains its root
+     * @param rootNode product graph node of the root, i.e. <code>(rootVertex, 0)</code>
+     * @return false whenever the job is full and should be submitted
+     */
+    public boolean addTree(T spanningTree, ProductGraphNode<Integer> rootNode) {
+        spanningTrees.add(spanningTree);
+        rootNodes.add(rootNode);
+        return !isFull();
+    }
+
+    public boolean isFull() {
+        return spanningTrees.size() >= Constants.EXPECTED_BATCH_SIZE;
+    }
+
+    public boolean isEmpty() {
+        return spanningTrees.isEmpty();
+    }
+
+    /**
+     * Results generated by this job. Results are buffered locally so that trees can be populated in parallel,
+     * and they should be merged by the caller once the job completes
+     * @return
+     */
+    public List<ResultPair<Integer>> getResults() {
+        return results;
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        for (int i = 0; i < spanningTrees.size(); i++) {
+            populate(spanningTrees.get(i), rootNodes.get(i));
+        }
+        return results.size();
+    }
+
+    private void populate(T tree, ProductGraphNode<Integer> rootProductNode) {
+        N rootNode = tree.getRootNode();
+
+        // max-heap on path timestamp: the first time a product node is polled, its timestamp is the youngest
+        // timestamp among all paths from the root, which is what incremental processing converges to
+        PriorityQueue<PendingTransition<N>> queue = new PriorityQueue<>(Constants.EXPECTED_NEIGHBOURS);
+        // youngest path timestamp queued for each product node, a transition with an older path is never polled first
+        Map<Long, Long> queuedTimestamps = new HashMap<>();
+
+        long rootTimestamp = Long.MIN_VALUE;
+        EdgeCursor<Integer> rootEdges = productGraph.getForwardEdgeCursor(rootProductNode.getVertex(), rootProductNode.getState());
+        while (rootEdges.next()) {
+            // root's children have timestamp equal to the edge timestamp
+            queue.offer(new PendingTransition<>(rootNode, rootEdges.getVertex(), rootEdges.getState(), rootEdges.getTimestamp()));
+            rootTimestamp = Long.max(rootTimestamp, rootEdges.getTimestamp());
+        }
+
+        while (!queue.isEmpty()) {
+            PendingTransition<N> transition = queue.poll();
+            if (tree.exists(transition.vertex, transition.state)) {
+                // already reached through a younger (or equally young) path
+                continue;
+            }
+
+            N childNode = tree.addNode(transition.parent, transition.vertex, transition.state, transition.timestamp);
+            if (automata.isFinalState(transition.state)) {
+                results.add(new ResultPair<>(tree.getRootVertex(), transition.vertex));
+            }
+
+            EdgeCursor<Integer> forwardEdges = productGraph.getForwardEdgeCursor(transition.vertex, transition.state);
+            while (forwardEdges.next()) {
+                long timestamp = Long.min(transition.timestamp, forwardEdges.getTimestamp());
+                long productNode = ((long) forwardEdges.getVertex() << 32) | forwardEdges.getState();
+                Long queuedTimestamp = queuedTimestamps.get(productNode);
+                if ((queuedTimestamp == null || queuedTimestamp < timestamp) && !tree.exists(forwardEdges.getVertex(), forwardEdges.getState())) {
+                    queuedTimestamps.put(productNode, timestamp);
+                    queue.offer(new PendingTransition<>(childNode, forwardEdges.getVertex(), forwardEdges.getState(), timestamp));
+                }
+            }
+        }
+
+        // root timestamp always higher than any node in the tree
+        if (rootTimestamp != Long.MIN_VALUE) {
+            rootNode.setTimestamp(rootTimestamp);
+        }
+    }
+
+    private static class PendingTransition<N> implements Comparable<PendingTransition<N>> {
+        private final N parent;
+        private final int vertex;
+        private final int state;
+        private final long timestamp;
+
+        private PendingTransition(N parent, int vertex, int state, long timestamp) {
+            this.parent = parent;
+            this.vertex = vertex;
+            this.state = state;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public int compareTo(PendingTransition<N> other) {
+            // reverse order, youngest path first
+            return Long.compare(other.timestamp, this.timestamp);
+        }
+    }
+}
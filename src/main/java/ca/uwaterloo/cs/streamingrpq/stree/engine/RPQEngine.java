@@ -12,6 +12,7 @@ import com.codahale.metrics.*;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 
+import java.util.Iterator;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -41,9 +42,22 @@ public abstract class RPQEngine<L> {
 
 
     protected RPQEngine(Automata<L> query, int capacity) {
+        this(query, capacity, false);
+    }
+
+    /**
+     * @param query Automata representation of the standing RPQ
+     * @param capacity Initial size for internal data structures
+     * @param offHeapProductGraph stores the product graph in direct memory instead of the Java heap
+     */
+    protected RPQEngine(Automata<L> query, int capacity, boolean offHeapProductGraph) {
         automata = query;
         results = Sets.newHashSet();
-        productGraph = new ProductGraph<>(capacity, query);
+        if (offHeapProductGraph) {
+            productGraph = new OffHeapProductGraph<>(capacity, query);
+        } else {
+            productGraph = new ProductGraph<>(capacity, query);
+        }
     }
 
     public Set<ResultPair<Integer>> getResults() {
@@ -89,6 +103,13 @@ public abstract class RPQEngine<L> {
 
     public abstract void processEdge(InputTuple<Integer, Integer, L> inputTuple);
 
+    /**
+     * Initializes the engine with an entire window of historical edges at once, instead of streaming them one by one
+     * through {@link #processEdge(InputTuple)}. Must be called before any other edge is processed.
+     * @param window edges of the initial window in timestamp order
+     */
+    public abstract void bulkLoad(Iterator<InputTuple<Integer, Integer, L>> window);
+
     public abstract void shutDown();
 
     /**
@@ -102,13 +123,29 @@ public abstract class RPQEngine<L> {
      * @param <L> Type of tuple labels and automata transitions
      * @return
      */
-    public static <L> RPQEngine<L> createWindowedRPQEngine(Automata<L> query, int capacity, long windowSize, long slideSize, int numOfThreads, Semantics semantics) {
-        RPQEngine<L> windowedEngine;
+    public static <L> WindowedRPQ<L, ?, ?> createWindowedRPQEngine(Automata<L> query, int capacity, long windowSize, long slideSize, int numOfThreads, Semantics semantics) {
+        return createWindowedRPQEngine(query, capacity, windowSize, slideSize, numOfThreads, semantics, false);
+    }
+
+    /**
+     * Create a windowed RPQ engine ready to execute queries based on given parameters
+     * @param query Automata representation of the standing RPQ
+     * @param capacity Number of spanning trees and index size
+     * @param windowSize Window size in terms of milliseconds
+     * @param slideSize Slide size in terms of milliseconds
+     * @param numOfThreads Total number of threads for ExpansionExecutor Pool
+     * @param semantics arbitrary or simple
+     * @param offHeapProductGraph stores the product graph in direct memory instead of the Java heap
+     * @param <L> Type of tuple labels and automata transitions
+     * @return
+     */
+    public static <L> WindowedRPQ<L, ?, ?> createWindowedRPQEngine(Automata<L> query, int capacity, long windowSize, long slideSize, int numOfThreads, Semantics semantics, boolean offHeapProductGraph) {
+        WindowedRPQ<L, ?, ?> windowedEngine;
 
         if(semantics.equals(Semantics.ARBITRARY)) {
-            windowedEngine = new WindowedRPQ<L, SpanningTreeRAPQ<Integer>, TreeNodeRAPQ<Integer>>(query, capacity, windowSize, slideSize, numOfThreads, semantics);
+            windowedEngine = new WindowedRPQ<L, SpanningTreeRAPQ<Integer>, TreeNodeRAPQ<Integer>>(query, capacity, windowSize, slideSize, numOfThreads, semantics, offHeapProductGraph);
         } else {
-            windowedEngine = new WindowedRPQ<L, SpanningTreeRSPQ<Integer>, TreeNodeRSPQ<Integer>>(query, capacity, windowSize, slideSize, numOfThreads, semantics);
+            windowedEngine = new WindowedRPQ<L, SpanningTreeRSPQ<Integer>, TreeNodeRSPQ<Integer>>(query, capacity, windowSize, slideSize, numOfThreads, semantics, offHeapProductGraph);
         }
 
         return windowedEngine;
@@ -125,8 +162,8 @@ public abstract class RPQEngine<L> {
      * @param <L> Type of tuple labels and automata transitions
      * @return
      */
-    public static <L> RPQEngine<L> createWindowedRPQEngine(Automata<L> query, int capacity, long windowSize, long slideSize, boolean allPairs, int sourceVertex) {
-        RPQEngine<L>  windowedEngine = new WindowedRPQ<L, SpanningTreeRAPQ<Integer>, TreeNodeRAPQ<Integer>>(query, capacity, windowSize, slideSize, allPairs, sourceVertex);
+    public static <L> WindowedRPQ<L, ?, ?> createWindowedRPQEngine(Automata<L> query, int capacity, long windowSize, long slideSize, boolean allPairs, int sourceVertex) {
+        WindowedRPQ<L, ?, ?> windowedEngine = new WindowedRPQ<L, SpanningTreeRAPQ<Integer>, TreeNodeRAPQ<Integer>>(query, capacity, windowSize, slideSize, allPairs, sourceVertex);
         return windowedEngine;
     }
 }
@@ -47,6 +47,11 @@ public class TreeNodeRAPQTreeExpansionJob<L> extends AbstractTreeExpansionJob<L,
             // if the child node already exists, we might need to update timestamp
             TreeNodeRAPQ<Integer> childNode = tree.getNodes(childVertex, childState).stream().findFirst().get();
 
+            if(childNode == tree.getRootNode()) {
+                // a transition back into the root never changes the tree, root cannot be its own child
+                return;
+            }
+
             // root's children have timestamp equal to the edge timestamp
             // root timestmap always higher than any node in the tree
             if(parentNode.equals(tree.getRootNode())) {
@@ -83,19 +88,10 @@ public class TreeNodeRAPQTreeExpansionJob<L> extends AbstractTreeExpansionJob<L,
             }
 
             // get all the forward edges of the new extended node
-            Collection<GraphEdge<ProductGraphNode<Integer>>> forwardEdges = productGraph.getForwardEdges(childVertex, childState);
-
-            if (forwardEdges == null) {
-                // TODO better nul handling
-                // end recursion if node has no forward edges
-                return;
-            } else {
-                // there are forward edges, iterate over them
-                for (GraphEdge<ProductGraphNode<Integer>> forwardEdge : forwardEdges) {
-                    // recursive call as the target of the forwardEdge has not been visited in state targetState before
-                    //processTransition(tree, childNode, forwardEdge.getTarget(), targetState, forwardEdge.getTimestamp());
-                    processTransition(tree, (TreeNodeRAPQ<Integer>) childNode, forwardEdge.getTarget().getVertex(), forwardEdge.getTarget().getState(), forwardEdge.getTimestamp());
-                }
+            EdgeCursor<Integer> forwardEdges = productGraph.getForwardEdgeCursor(childVertex, childState);
+            while (forwardEdges.next()) {
+                // recursive call as the target of the forwardEdge has not been visited in state targetState before
+                processTransition(tree, childNode, forwardEdges.getVertex(), forwardEdges.getState(), forwardEdges.getTimestamp());
             }
         }
     }
@@ -112,7 +108,9 @@ public class TreeNodeRAPQTreeExpansionJob<L> extends AbstractTreeExpansionJob<L,
             while(!queue.isEmpty()) {
                 TreeNodeRAPQ<Integer> currentNode = queue.poll();
                 currentNode.setDeleted();
-                queue.addAll(currentNode.getChildren());
+                for(TreeNodeRAPQ<Integer> child = currentNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    queue.offer(child);
+                }
             }
 
             // allnodes are marked,
@@ -127,6 +125,7 @@ public class TreeNodeRAPQTreeExpansionJob<L> extends AbstractTreeExpansionJob<L,
                     resultCount--;
                 }
             }
+            tree.releaseNodes(removedNodes);
 
         } else {
             // there is no such edge so no need for deletion
@@ -5,14 +5,15 @@ import ca.uwaterloo.cs.streamingrpq.stree.data.simple.SpanningTreeRSPQ;
 import ca.uwaterloo.cs.streamingrpq.stree.data.simple.TreeNodeRSPQ;
 import ca.uwaterloo.cs.streamingrpq.stree.query.Automata;
 import ca.uwaterloo.cs.streamingrpq.stree.util.Constants;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Hasher;
 
-import java.util.Collection;
-import java.util.Queue;
-import java.util.Set;
-import java.util.Stack;
+import java.util.*;
+import java.util.function.Consumer;
 
 public class TreeNodeRSPQTreeExpansionJob<L> extends AbstractTreeExpansionJob<L, SpanningTreeRSPQ<Integer>, TreeNodeRSPQ<Integer>> {
 
+    private final Consumer<TreeNodeRSPQ<Integer>> resultEmitter = this::emitNewNode;
+
     public TreeNodeRSPQTreeExpansionJob(ProductGraph<Integer, L> productGraph, Automata<L> automata, Set<ResultPair<Integer>> results, boolean isDeletion) {
         super(productGraph, automata, results, isDeletion);
 
@@ -28,10 +29,17 @@ public class TreeNodeRSPQTreeExpansionJob<L> extends AbstractTreeExpansionJob<L,
     @Override
     public Integer call() throws Exception {
 
-        // call each job in teh buffer
-        for (int i = 0; i < currentSize; i++) {
-            if (!parentNode[i].containsCM(targetVertex[i], targetState[i]) && !spanningTree[i].isMarked(targetVertex[i], targetState[i])) {
-                processTransition(spanningTree[i], parentNode[i], targetVertex[i], targetState[i], edgeTimestamp[i]);
+        if (isDeletion) {
+            // call each job in teh buffer
+            for (int i = 0; i < currentSize; i++) {
+                markExpired(spanningTree[i], parentNode[i], targetVertex[i], targetState[i], edgeTimestamp[i]);
+            }
+        } else {
+            // call each job in teh buffer
+            for (int i = 0; i < currentSize; i++) {
+                if (!parentNode[i].containsCM(targetVertex[i], targetState[i]) && !spanningTree[i].isMarked(targetVertex[i], targetState[i])) {
+                    processTransition(spanningTree[i], parentNode[i], targetVertex[i], targetState[i], edgeTimestamp[i]);
+                }
             }
         }
 
@@ -40,92 +48,91 @@ public class TreeNodeRSPQTreeExpansionJob<L> extends AbstractTreeExpansionJob<L,
 
     @Override
     public void processTransition(SpanningTreeRSPQ<Integer> tree, TreeNodeRSPQ<Integer> parentNode, int childVertex, int childState, long edgeTimestamp) {
-        if (!automata.hasContainment(parentNode.getFirstCM(childVertex), childState)) {
-            // detected conflict parent node needs to be unmarked
-            unmark(tree, parentNode);
-        } else {
-            // if this is the first target product node is visited, simply add it to the markings
-            if (!tree.exists(childVertex, childState)) {
-                tree.addMarking(childVertex, childState);
+        tree.extendPrefixPath(productGraph, parentNode, childVertex, childState, edgeTimestamp, resultEmitter);
+    }
+
+    /**
+     * Reports the nodes added by an expansion in final states as results
+     * @param childNode
+     */
+    private void emitNewNode(TreeNodeRSPQ<Integer> childNode) {
+        if (automata.isFinalState(childNode.getState())) {
+            results.add(new ResultPair<>(childNode.getTree().getRootVertex(), childNode.getVertex()));
+            resultCount++;
+        }
+    }
+
+    @Override
+    public void markExpired(SpanningTreeRSPQ<Integer> tree, TreeNodeRSPQ<Integer> parentNode, int childVertex, int childState, long edgeTimestamp) {
+        // parent node might be already removed by the deletion processed for another node of the same tree
+        if (parentNode != tree.getRootNode() && parentNode.getParent() == null) {
+            return;
+        }
+
+        // product graph might still have a parallel edge, then the subtree is still valid but it might be older
+        long parallelEdgeTimestamp = Long.MIN_VALUE;
+        EdgeCursor<Integer> forwardEdges = productGraph.getForwardEdgeCursor(parentNode.getVertex(), parentNode.getState());
+        while (forwardEdges.next()) {
+            if (forwardEdges.getVertex() == childVertex && forwardEdges.getState() == childState) {
+                parallelEdgeTimestamp = Long.max(parallelEdgeTimestamp, forwardEdges.getTimestamp());
             }
+        }
 
-            //add new node to the tree as a new child
-            TreeNodeRSPQ<Integer> childNode;
-            if (parentNode.equals(tree.getRootNode())) {
-                childNode = tree.addNode(parentNode, childVertex, childState, edgeTimestamp);
-                parentNode.setTimestamp(edgeTimestamp);
-            } else {
-                childNode = tree.addNode(parentNode, childVertex, childState, Long.min(parentNode.getTimestamp(), edgeTimestamp));
+        List<TreeNodeRSPQ<Integer>> deletedChildren = new ArrayList<>();
+        for (TreeNodeRSPQ<Integer> child = parentNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getVertex() == childVertex && child.getState() == childState) {
+                deletedChildren.add(child);
             }
+        }
 
-            if (automata.isFinalState(childState)) {
-                results.add(new ResultPair<>(tree.getRootVertex(), childVertex));
-                resultCount++;
+        if (parallelEdgeTimestamp != Long.MIN_VALUE) {
+            long childTimestamp = parentNode == tree.getRootNode() ? parallelEdgeTimestamp : Long.min(parentNode.getTimestamp(), parallelEdgeTimestamp);
+            for (TreeNodeRSPQ<Integer> child : deletedChildren) {
+                updateSubtreeTimestamp(child, childTimestamp);
             }
+            return;
+        }
 
-            // get all the forward edges of the new extended node
-            Collection<GraphEdge<ProductGraphNode<Integer>>> forwardEdges = productGraph.getForwardEdges(childVertex, childState);
-
-            if (forwardEdges == null) {
-                return;
-            } else {
-                // there are forward edges, iterate over them
-                for (GraphEdge<ProductGraphNode<Integer>> forwardEdge : forwardEdges) {
-                    int targetVertex = forwardEdge.getTarget().getVertex();
-                    int targetState = forwardEdge.getTarget().getState();
-                    if (!childNode.containsCM(targetVertex, targetState) && !tree.isMarked(targetVertex, targetState)) {
-                        // visit a node only if that same node is not visited at the same state before
-                        // simply prevent cycles in product graph
-                        processTransition(tree, childNode, targetVertex, targetState, forwardEdge.getTimestamp());
-                    }
-                }
+        // remove the subtrees that are only reachable through the deleted edge
+        List<TreeNodeRSPQ<Integer>> removedNodes = new ArrayList<>();
+        for (TreeNodeRSPQ<Integer> child : deletedChildren) {
+            removedNodes.addAll(tree.removeSubtree(child));
+        }
+
+        // restore the removed pairs that are still reachable through other paths
+        tree.reconnect(productGraph, removedNodes);
+
+        // negative results for the final state nodes that cannot be reached anymore
+        Set<Hasher.MapKey<Integer>> retractedNodes = new HashSet<>();
+        for (TreeNodeRSPQ<Integer> removedNode : removedNodes) {
+            if (automata.isFinalState(removedNode.getState()) && !tree.exists(removedNode.getVertex(), removedNode.getState())
+                    && retractedNodes.add(Hasher.createTreeNodePairKey(removedNode.getVertex(), removedNode.getState()))) {
+                results.add(new ResultPair<Integer>(tree.getRootVertex(), removedNode.getVertex(), true));
+                resultCount--;
             }
         }
     }
 
     /**
-     * Implements unmarking procedure for nodes with conflicts
-     *
-     * @param tree
-     * @param parentNode
+     * Lowers the timestamps of the subtree after the edge to its root is replaced with an older parallel edge
+     * @param subtreeRoot
+     * @param timestamp new timestamp of the <code>subtreeRoot</code>
      */
-    public void unmark(SpanningTreeRSPQ<Integer> tree, TreeNodeRSPQ<Integer> parentNode) {
-
-        Stack<TreeNodeRSPQ<Integer>> unmarkedNodes = new Stack<>();
-
-        TreeNodeRSPQ<Integer> currentNode = parentNode;
-
-        // first unmark all marked nodes upto parent
-        while (currentNode != null && tree.isMarked(currentNode.getVertex(), currentNode.getState())) {
-            tree.removeMarking(currentNode.getVertex(), currentNode.getState());
-            unmarkedNodes.push(currentNode);
-            currentNode = currentNode.getParent();
+    private void updateSubtreeTimestamp(TreeNodeRSPQ<Integer> subtreeRoot, long timestamp) {
+        if (subtreeRoot.getTimestamp() <= timestamp) {
+            return;
         }
-
-        // now simply traverse back edges of the candidates and invoke processTransition
-        while (!unmarkedNodes.isEmpty()) {
-            currentNode = unmarkedNodes.pop();
-
-            // get backward edges of the unmarked node
-            Collection<GraphEdge<ProductGraphNode<Integer>>> backwardEdges = productGraph.getBackwardEdges(currentNode.getVertex(), currentNode.getState());
-            for (GraphEdge<ProductGraphNode<Integer>> backwardEdge : backwardEdges) {
-                int sourceVertex = backwardEdge.getSource().getVertex();
-                int sourceState = backwardEdge.getSource().getState();
-                // find all the nodes that are pruned due to previously marking
-                Collection<TreeNodeRSPQ<Integer>> parentNodes = tree.getNodes(sourceVertex, sourceState);
-                for (TreeNodeRSPQ<Integer> parent : parentNodes) {
-                    // try to extend if it is not a cycle in the product graph
-                    if (!parent.containsCM(currentNode.getVertex(), currentNode.getState())) {
-                        processTransition(tree, parent, currentNode.getVertex(), currentNode.getState(), backwardEdge.getTimestamp());
-                    }
+        subtreeRoot.setTimestamp(timestamp);
+        Queue<TreeNodeRSPQ<Integer>> queue = new ArrayDeque<>();
+        queue.offer(subtreeRoot);
+        while (!queue.isEmpty()) {
+            TreeNodeRSPQ<Integer> currentNode = queue.poll();
+            for (TreeNodeRSPQ<Integer> child = currentNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getTimestamp() > currentNode.getTimestamp()) {
+                    child.setTimestamp(currentNode.getTimestamp());
+                    queue.offer(child);
                 }
             }
         }
-
-    }
-
-    @Override
-    public void markExpired(SpanningTreeRSPQ<Integer> tree, TreeNodeRSPQ<Integer> parentNode, int childVertex, int childState, long edgeTimestamp) {
-        //TODO implement deletion for simple path semantics
     }
 }
\ No newline at end of file
@@ -3,7 +3,9 @@ package ca.uwaterloo.cs.streamingrpq.stree.engine;
 import ca.uwaterloo.cs.streamingrpq.input.InputTuple;
 import ca.uwaterloo.cs.streamingrpq.stree.data.*;
 import ca.uwaterloo.cs.streamingrpq.stree.data.Delta;
+import ca.uwaterloo.cs.streamingrpq.stree.data.arbitrary.CompactSpanningTreeRAPQ;
 import ca.uwaterloo.cs.streamingrpq.stree.data.arbitrary.ObjectFactoryArbitrary;
+import ca.uwaterloo.cs.streamingrpq.stree.data.arbitrary.ObjectFactoryCompact;
 import ca.uwaterloo.cs.streamingrpq.stree.data.simple.ObjectFactorySimple;
 import ca.uwaterloo.cs.streamingrpq.stree.query.Automata;
 import ca.uwaterloo.cs.streamingrpq.stree.util.Constants;
@@ -17,7 +19,6 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 
 /**
  * Created by anilpacaci on 2019-10-02.
@@ -38,9 +39,14 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
 
 
     private ExecutorService executorService;
+    private CompletionService<Integer> completionService;
 
     private int numOfThreads;
 
+    // expansion jobs are recycled once they complete, pools are per thread as engines might be driven by multiple threads
+    private ThreadLocal<ArrayDeque<AbstractTreeExpansionJob<L, T, N>>> expansionJobPool = ThreadLocal.withInitial(ArrayDeque::new);
+    private final List<AbstractTreeExpansionJob<L, T, N>> submittedJobs = new ArrayList<>();
+
 
     private final Logger LOG = LoggerFactory.getLogger(WindowedRPQ.class);
 
@@ -54,7 +60,21 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
      * @param semantics Resulting path semantics: @{@link Semantics}
      */
     public WindowedRPQ(Automata<L> query, int capacity, long windowSize, long slideSize, int numOfThreads, Semantics semantics) {
-        super(query, capacity);
+        this(query, capacity, windowSize, slideSize, numOfThreads, semantics, false);
+    }
+
+    /**
+     * Windowed RPQ engine ready to process edges
+     * @param query Automata representation of the persistent query
+     * @param capacity Initial size for internal data structures. Set to approximate number of edges in a window
+     * @param windowSize Size of the sliding window in milliseconds
+     * @param slideSize Slide interval in milliseconds
+     * @param numOfThreads Total number of executor threads
+     * @param semantics Resulting path semantics: @{@link Semantics}
+     * @param offHeapProductGraph stores the product graph in direct memory instead of the Java heap
+     */
+    public WindowedRPQ(Automata<L> query, int capacity, long windowSize, long slideSize, int numOfThreads, Semantics semantics, boolean offHeapProductGraph) {
+        super(query, capacity, offHeapProductGraph);
         if (semantics.equals(Semantics.ARBITRARY)) {
             this.objectFactory = new ObjectFactoryArbitrary();
         } else {
@@ -64,6 +84,7 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
         this.windowSize = windowSize;
         this.slideSize = slideSize;
         this.executorService = Executors.newFixedThreadPool(numOfThreads);
+        this.completionService = new ExecutorCompletionService<>(this.executorService);
         this.numOfThreads = numOfThreads;
         this.semantics = semantics;
 
@@ -100,6 +121,23 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
         this(query, capacity, windowSize, slideSize, 1, Semantics.ARBITRARY);
     }
 
+    /**
+     * Stores the spanning trees in columnar arrays indexed by a primitive vertex-state map instead of an object per
+     * node, see {@link CompactSpanningTreeRAPQ}. Only supported under arbitrary path semantics
+     * @param compactTrees
+     */
+    public void setCompactTrees(boolean compactTrees) {
+        if (productGraph.getEdgeCount() > 0) {
+            throw new IllegalStateException("Tree storage must be set before any edge is processed");
+        }
+        if (!semantics.equals(Semantics.ARBITRARY)) {
+            LOG.warn("Compact trees are only supported under arbitrary path semantics, storing an object per node instead");
+            return;
+        }
+        this.objectFactory = (ObjectFactory<Integer, T, N>) (ObjectFactory<Integer, ?, ?>) (compactTrees ? new ObjectFactoryCompact() : new ObjectFactoryArbitrary<Integer>());
+        this.delta.setObjectFactory(objectFactory);
+    }
+
     @Override
     public void addMetricRegistry(MetricRegistry metricRegistry) {
         this.delta.addMetricRegistry(metricRegistry);
@@ -154,14 +192,10 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
             delta.addTree(inputTuple.getSource(), inputTuple.getTimestamp());
         }
 
-        List<Future<Integer>> futureList = Lists.newArrayList();
-        CompletionService<Integer> completionService = new ExecutorCompletionService<>(this.executorService);
-
-        List<Map.Entry<Integer, Integer>> transitionList = transitions.entrySet().stream().collect(Collectors.toList());
-        AbstractTreeExpansionJob treeExpansionJob = objectFactory.createExpansionJob(productGraph, automata, results, inputTuple.isDeletion());
+        AbstractTreeExpansionJob<L, T, N> treeExpansionJob = acquireExpansionJob(inputTuple.isDeletion());
 
         // for each transition that given label satisy
-        for (Map.Entry<Integer, Integer> transition : transitionList) {
+        for (Map.Entry<Integer, Integer> transition : transitions.entrySet()) {
             int sourceState = transition.getKey();
             int targetState = transition.getValue();
 
@@ -174,18 +208,23 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
                 // source is guarenteed to exists due to above loop,
                 // we do not check target here as even if it exist, we might update its timetsap
                 Collection<N> parentNodes = spanningTree.getNodes(inputTuple.getSource(), sourceState);
+                if(!semantics.equals(Semantics.ARBITRARY)) {
+                    // a full batch runs right away, and under simple path semantics it might add or remove nodes of the same pair
+                    parentNodes = new ArrayList<>(parentNodes);
+                }
                 for(N parentNode : parentNodes) {
                     //processTransition(spanningTree, parentNode, inputTuple.getTarget(), targetState, inputTuple.getTimestamp());
                     treeExpansionJob.addJob(spanningTree, parentNode, inputTuple.getTarget(), targetState, inputTuple.getTimestamp());
                     // check whether the job is full and ready to submit
                     if (treeExpansionJob.isFull()) {
                         if (runParallel) {
-                            futureList.add(completionService.submit(treeExpansionJob));
-                            treeExpansionJob = objectFactory.createExpansionJob(productGraph, automata, results, inputTuple.isDeletion());
+                            completionService.submit(treeExpansionJob);
+                            submittedJobs.add(treeExpansionJob);
+                            treeExpansionJob = acquireExpansionJob(inputTuple.isDeletion());
                         } else {
                             try {
                                 Integer partialResultCount = treeExpansionJob.call();
-                                treeExpansionJob = objectFactory.createExpansionJob(productGraph, automata, results, inputTuple.isDeletion());
+                                treeExpansionJob.reset(inputTuple.isDeletion());
                                 resultCounter.inc(partialResultCount);
                             } catch (Exception e) {
                                 LOG.error("SpanningTreeExpansion exception on main thread", e);
@@ -197,7 +236,7 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
 
 
             // wait for results of al jobs before moving to next transition to ensure that there is a single thread working on a tree
-            for (int i = 0; i < futureList.size(); i++) {
+            for (int i = 0; i < submittedJobs.size(); i++) {
                 try {
                     Integer partialResultCount = completionService.take().get();
                     resultCounter.inc(partialResultCount);
@@ -205,6 +244,10 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
                     LOG.error("SpanningTreeExpansion interrupted during execution", e);
                 }
             }
+            for (AbstractTreeExpansionJob<L, T, N> submittedJob : submittedJobs) {
+                releaseExpansionJob(submittedJob);
+            }
+            submittedJobs.clear();
 
             // if there is any remaining job in the buffer, run them in main thread
             if (!treeExpansionJob.isEmpty()) {
@@ -214,9 +257,11 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
                 } catch (Exception e) {
                     LOG.error("SpanningTreeExpansion exception on main thread", e);
                 }
+                treeExpansionJob.reset(inputTuple.isDeletion());
             }
 
         }
+        releaseExpansionJob(treeExpansionJob);
 
 
         // metric recording
@@ -238,8 +283,98 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
         }
     }
 
-    private void processEdgeRAPQ() {
+    /**
+     * Bulk loads a window of edges. All edges are first inserted into the product graph, and then a spanning tree is
+     * built for each root with a single best-first traversal over the product graph. Trees are populated in parallel
+     * by the executor pool.
+     * Only arbitrary path semantics supports batch construction, edges are streamed through {@link #processEdge(InputTuple)}
+     * under simple path semantics.
+     * Trees are built from scratch, so the engine must be empty
+     * @param window edges of the initial window in timestamp order
+     * @throws IllegalStateException if an edge is already processed
+     */
+    @Override
+    public void bulkLoad(Iterator<InputTuple<Integer, Integer, L>> window) {
+        if (productGraph.getEdgeCount() > 0) {
+            throw new IllegalStateException("Bulk load must be called before any edge is processed");
+        }
+        if (!semantics.equals(Semantics.ARBITRARY)) {
+            LOG.warn("Bulk loading is only supported under arbitrary path semantics, streaming edges instead");
+            while (window.hasNext()) {
+                processEdge(window.next());
+            }
+            return;
+        }
+
+        Long windowStartTime = System.nanoTime();
 
+        // first populate the product graph with all the edges in the window
+        long maxTimestamp = Long.MIN_VALUE;
+        while (window.hasNext()) {
+            InputTuple<Integer, Integer, L> inputTuple = window.next();
+            if (automata.getTransition(inputTuple.getLabel()).isEmpty()) {
+                continue;
+            }
+            if (inputTuple.isDeletion()) {
+                productGraph.removeEdge(inputTuple.getSource(), inputTuple.getTarget(), inputTuple.getLabel(), inputTuple.getTimestamp());
+                edgeCount--;
+            } else {
+                productGraph.addEdge(inputTuple.getSource(), inputTuple.getTarget(), inputTuple.getLabel(), inputTuple.getTimestamp());
+                edgeCount++;
+            }
+            maxTimestamp = Long.max(maxTimestamp, inputTuple.getTimestamp());
+        }
+
+        if (maxTimestamp == Long.MIN_VALUE) {
+            // there is no edge that is relevant to the query
+            return;
+        }
+
+        // discard edges that would have expired if the window was streamed
+        if (maxTimestamp >= windowSize) {
+            productGraph.removeOldEdges(maxTimestamp - windowSize);
+        }
+        lastExpiry = maxTimestamp;
+
+        // create a spanning tree for every product node in the initial state with an outgoing edge
+        List<RAPQSpanningTreeBulkLoadJob<L, T, N>> jobs = Lists.newArrayList();
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(this.executorService);
+        RAPQSpanningTreeBulkLoadJob<L, T, N> bulkLoadJob = new RAPQSpanningTreeBulkLoadJob<>(productGraph, automata);
+        int treeCount = 0;
+        for (ProductGraphNode<Integer> productNode : Lists.newArrayList(productGraph.getVertices())) {
+            Integer rootVertex = productNode.getVertex();
+            if (productNode.getState() != 0 || productGraph.getForwardEdges(productNode).isEmpty()
+                    || !(allPairs || rootVertex == sourceVertex)) {
+                continue;
+            }
+            T spanningTree = delta.addTree(rootVertex, maxTimestamp);
+            treeCount++;
+            if (!bulkLoadJob.addTree(spanningTree, productNode)) {
+                jobs.add(bulkLoadJob);
+                completionService.submit(bulkLoadJob);
+                bulkLoadJob = new RAPQSpanningTreeBulkLoadJob<>(productGraph, automata);
+            }
+        }
+        if (!bulkLoadJob.isEmpty()) {
+            jobs.add(bulkLoadJob);
+            completionService.submit(bulkLoadJob);
+        }
+
+        // wait for all trees to be populated before merging the results on the main thread
+        for (int i = 0; i < jobs.size(); i++) {
+            try {
+                completionService.take().get();
+            } catch (InterruptedException | ExecutionException e) {
+                LOG.error("SpanningTree bulk load interrupted during execution", e);
+            }
+        }
+        for (RAPQSpanningTreeBulkLoadJob<L, T, N> job : jobs) {
+            results.addAll(job.getResults());
+            resultCounter.inc(job.getResults().size());
+        }
+
+        LOG.info("Bulk load of {} edges with {} trees completed in {} ms", productGraph.getEdgeCount(), treeCount,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - windowStartTime));
     }
 
     @Override
@@ -248,6 +383,30 @@ public class WindowedRPQ<L, T extends AbstractSpanningTree<Integer, T, N>, N ext
         this.executorService.shutdown();
     }
 
+    /**
+     * Retrieves an empty expansion job from the pool of the calling thread, a new one is created if the pool is empty
+     * @param isDeletion
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private AbstractTreeExpansionJob<L, T, N> acquireExpansionJob(boolean isDeletion) {
+        AbstractTreeExpansionJob<L, T, N> treeExpansionJob = expansionJobPool.get().poll();
+        if (treeExpansionJob == null) {
+            return objectFactory.createExpansionJob(productGraph, automata, results, isDeletion);
+        }
+        treeExpansionJob.reset(isDeletion);
+        return treeExpansionJob;
+    }
+
+    /**
+     * Returns a completed expansion job to the pool of the calling thread
+     * @param treeExpansionJob
+     */
+    private void releaseExpansionJob(AbstractTreeExpansionJob<L, T, N> treeExpansionJob) {
+        treeExpansionJob.reset(false);
+        expansionJobPool.get().push(treeExpansionJob);
+    }
+
     /**
      * updates Delta and Spanning Trees and removes any node that is lower than the window endpoint
      * might need to traverse the entire spanning tree to make sure that there does not exists an alternative path
@@ -18,7 +18,18 @@ public class Constants {
      */
     public static final int EXPECTED_BATCH_SIZE = 64;
 
-    public static final int EXPECTED_TREE_SIZE = 8192;
+    // initial capacity of the indexes of a spanning tree. Trees start with their root and most of them stay small in
+    // windows with many short-lived trees, so the indexes grow on demand instead of being allocated for large trees
+    public static final int EXPECTED_TREE_SIZE = 16;
+
+    // expected number of nodes for a vertex-state pair in a tree, there is a single one under arbitrary path semantics
+    public static final int EXPECTED_NODES_PER_PAIR = 2;
+
+    // maximum number of removed tree nodes kept for reuse
+    public static final int TREE_NODE_POOL_SIZE = 65536;
+
+    // number of tree nodes moved at once between the shared pool and the pool of a thread
+    public static final int TREE_NODE_POOL_BATCH_SIZE = 256;
 
     public static final int HISTOGRAM_BUCKET_SIZE = 526336;
 
@@ -0,0 +1,158 @@
+package ca.uwaterloo.cs.streamingrpq.stree.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive long keys to non-negative int values.
+ * Linear probing is used for collisions and removals shift the following entries back, so no tombstones are needed.
+ * It is not thread safe.
+ */
+public class LongIntHashMap {
+
+    public static final int NO_VALUE = -1;
+
+    private long keys[];
+    private int values[];
+    private int mask;
+    private int size;
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    /**
+     * Combines a vertex and a state into a single key
+     * @param vertex
+     * @param state
+     * @return
+     */
+    public static long pairKey(int vertex, int state) {
+        return ((long) vertex << 32) | (state & 0xFFFFFFFFL);
+    }
+
+    public int get(long key) {
+        int slot = slot(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * @param key
+     * @param value non-negative value
+     * @return previous value, or {@link #NO_VALUE} if there was no mapping
+     */
+    public int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values can be stored: " + value);
+        }
+        int slot = slot(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        // keep the load factor below 0.5
+        if (size * 2 > mask) {
+            resize();
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * @param key
+     * @return removed value, or {@link #NO_VALUE} if there was no mapping
+     */
+    public int remove(long key) {
+        int slot = slot(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                int removed = values[slot];
+                shiftBack(slot);
+                size--;
+                return removed;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(values, NO_VALUE);
+        size = 0;
+    }
+
+    /**
+     * @return approximate number of bytes used by the arrays of this map
+     */
+    public long getAllocatedBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private void shiftBack(int slot) {
+        // move back the following entries of the probe sequence so that lookups do not stop early
+        int gap = slot;
+        int current = (slot + 1) & mask;
+        while (values[current] != NO_VALUE) {
+            int home = slot(keys[current]);
+            // entry can fill the gap only if its home slot is not cyclically in (gap, current]
+            if (((current - home) & mask) >= ((current - gap) & mask)) {
+                keys[gap] = keys[current];
+                values[gap] = values[current];
+                gap = current;
+            }
+            current = (current + 1) & mask;
+        }
+        values[gap] = NO_VALUE;
+    }
+
+    private void resize() {
+        long oldKeys[] = keys;
+        int oldValues[] = values;
+
+        int capacity = oldKeys.length * 2;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != NO_VALUE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,90 @@
+package ca.uwaterloo.cs.streamingrpq;
+
+import ca.uwaterloo.cs.streamingrpq.input.InputTuple;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomata;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomataBuilder;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.RPQEngine;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Semantics;
+import com.codahale.metrics.MetricRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the bytes allocated by the windowed engine per processed tuple once the window is full, with and without
+ * explicit deletions, and logs the allocation sites that are sampled the most by Java Flight Recorder
+ */
+public class AllocationBenchmark {
+
+    private static final int VERTEX_COUNT = 5000;
+    private static final int TUPLE_COUNT = 60000;
+    private static final long WINDOW_SIZE = 5000;
+    private static final long SLIDE_SIZE = 500;
+    private static final int TOP_SITES = 12;
+
+    public static void main(String[] args) {
+        BricsAutomata query = new BricsAutomataBuilder().fromSPARQL("ASK { ?x (<a>/<b>)+ ?y }");
+        query.finalize();
+
+        for (int deletionPercentage : new int[]{0, 20}) {
+            List<InputTuple<Integer, Integer, String>> stream = randomStream(deletionPercentage);
+            for (int threadCount : new int[]{1, 4}) {
+                RPQEngine<String> rpq = RPQEngine.createWindowedRPQEngine(query, 100, WINDOW_SIZE, SLIDE_SIZE, threadCount, Semantics.ARBITRARY);
+                rpq.addMetricRegistry(new MetricRegistry());
+
+                // the first third fills the window and warms up the pools
+                int warmUp = stream.size() / 3;
+                for (int i = 0; i < warmUp; i++) {
+                    rpq.processEdge(stream.get(i));
+                }
+
+                AllocationRecorder recorder = new AllocationRecorder("allocation-" + deletionPercentage + "-" + threadCount + ".jfr");
+                recorder.start();
+                long startBytes = allocatedBytes();
+                long startTime = System.nanoTime();
+                for (int i = warmUp; i < stream.size(); i++) {
+                    rpq.processEdge(stream.get(i));
+                }
+                long elapsedTime = System.nanoTime() - startTime;
+                long bytes = allocatedBytes() - startBytes;
+                recorder.stop(TOP_SITES);
+
+                System.out.println(String.format("%d%% deletions, %d threads: %d MB allocated, %d bytes per tuple, %d ms, %d results",
+                        deletionPercentage, threadCount, bytes >> 20, bytes / (stream.size() - warmUp),
+                        elapsedTime / 1_000_000, rpq.getResultCount()));
+                rpq.shutDown();
+            }
+        }
+    }
+
+    /**
+     * @return bytes allocated by all live threads, including the executor threads of the engine
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytes = 0;
+        for (long threadId : threadMXBean.getAllThreadIds()) {
+            bytes += Math.max(0, threadMXBean.getThreadAllocatedBytes(threadId));
+        }
+        return bytes;
+    }
+
+    private static List<InputTuple<Integer, Integer, String>> randomStream(int deletionPercentage) {
+        Random random = new Random(42);
+        List<InputTuple<Integer, Integer, String>> insertions = new ArrayList<>();
+        List<InputTuple<Integer, Integer, String>> stream = new ArrayList<>();
+        for (int i = 0; i < TUPLE_COUNT; i++) {
+            if (!insertions.isEmpty() && random.nextInt(100) < deletionPercentage) {
+                InputTuple<Integer, Integer, String> insertion = insertions.remove(random.nextInt(insertions.size()));
+                stream.add(new InputTuple<>(insertion.getSource(), insertion.getTarget(), insertion.getLabel(), insertion.getTimestamp(), InputTuple.TupleType.DELETE));
+                continue;
+            }
+            InputTuple<Integer, Integer, String> insertion = new InputTuple<>(random.nextInt(VERTEX_COUNT), random.nextInt(VERTEX_COUNT), random.nextBoolean() ? "a" : "b", i);
+            insertions.add(insertion);
+            stream.add(insertion);
+        }
+        return stream;
+    }
+}
@@ -0,0 +1,127 @@
+package ca.uwaterloo.cs.streamingrpq;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records heap allocations of the running JVM with Java Flight Recorder, so that the allocation rate of the
+ * engine and its allocation sites can be measured. Requires a JVM with JFR support (JDK 11 or later), so it is only
+ * used by the benchmarks.
+ */
+public class AllocationRecorder {
+
+    private static final String ALLOCATION_SAMPLE_EVENT = "jdk.ObjectAllocationSample";
+    private static final String ALLOCATION_IN_TLAB_EVENT = "jdk.ObjectAllocationInNewTLAB";
+    private static final String ALLOCATION_OUTSIDE_TLAB_EVENT = "jdk.ObjectAllocationOutsideTLAB";
+
+    private final Logger LOG = LoggerFactory.getLogger(AllocationRecorder.class);
+
+    private final Path destination;
+    private Recording recording;
+    private long startTime;
+
+    /**
+     * @param destination file the recording is written to once it is stopped
+     */
+    public AllocationRecorder(String destination) {
+        this.destination = Paths.get(destination);
+    }
+
+    public void start() {
+        recording = new Recording();
+        recording.enable(ALLOCATION_SAMPLE_EVENT).withStackTrace();
+        recording.enable(ALLOCATION_IN_TLAB_EVENT).withStackTrace();
+        recording.enable(ALLOCATION_OUTSIDE_TLAB_EVENT).withStackTrace();
+        recording.enable("jdk.GarbageCollection");
+        recording.enable("jdk.GCHeapSummary");
+        recording.setToDisk(true);
+        try {
+            recording.setDestination(destination);
+        } catch (IOException e) {
+            LOG.error("JFR recording destination {} is not writable, allocations are not recorded", destination, e);
+            recording.close();
+            recording = null;
+            return;
+        }
+        startTime = System.nanoTime();
+        recording.start();
+        LOG.info("JFR allocation recording started, recording will be written to {}", destination);
+    }
+
+    /**
+     * Stops the recording, writes it to the destination and logs the observed allocation rate and the allocated
+     * classes that are sampled the most, with the first frame of the engine that allocates them
+     * @param topSites number of allocation sites that are logged
+     * @return estimated number of bytes allocated while recording
+     */
+    public long stop(int topSites) {
+        if (recording == null) {
+            return 0;
+        }
+        recording.stop();
+        long elapsed = System.nanoTime() - startTime;
+        recording.close();
+        recording = null;
+
+        // allocation samples are weighted with the bytes allocated since the previous sample, TLAB events are only
+        // emitted by older JVMs, use whichever is present
+        long sampledBytes = 0;
+        long tlabBytes = 0;
+        List<RecordedEvent> events;
+        try {
+            events = RecordingFile.readAllEvents(destination);
+        } catch (IOException e) {
+            LOG.error("JFR recording {} cannot be read", destination, e);
+            return 0;
+        }
+        Map<String, Long> siteBytes = new HashMap<>();
+        for (RecordedEvent event : events) {
+            String eventName = event.getEventType().getName();
+            if (eventName.equals(ALLOCATION_SAMPLE_EVENT)) {
+                sampledBytes += event.getLong("weight");
+                siteBytes.merge(allocationSite(event), event.getLong("weight"), Long::sum);
+            } else if (eventName.equals(ALLOCATION_IN_TLAB_EVENT)) {
+                tlabBytes += event.getLong("tlabSize");
+            } else if (eventName.equals(ALLOCATION_OUTSIDE_TLAB_EVENT)) {
+                tlabBytes += event.getLong("allocationSize");
+            }
+        }
+        long allocatedBytes = sampledBytes > 0 ? sampledBytes : tlabBytes;
+        double seconds = Duration.ofNanos(elapsed).toMillis() / 1000.0;
+        LOG.info("JFR recording {}: ~{} MB allocated in {} s, {} MB/s", destination, allocatedBytes >> 20, seconds,
+                String.format("%.2f", (allocatedBytes >> 20) / Math.max(seconds, 0.001)));
+        siteBytes.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(topSites)
+                .forEach(site -> LOG.info("~{} MB {}", site.getValue() >> 20, site.getKey()));
+        return allocatedBytes;
+    }
+
+    private static String allocationSite(RecordedEvent event) {
+        String site = event.getClass("objectClass").getName();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return site;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith("ca.uwaterloo")) {
+                return site + " at " + type.substring(type.lastIndexOf('.') + 1) + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return site;
+    }
+}
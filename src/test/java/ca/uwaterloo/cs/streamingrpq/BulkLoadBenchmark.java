@@ -0,0 +1,80 @@
+package ca.uwaterloo.cs.streamingrpq;
+
+import ca.uwaterloo.cs.streamingrpq.input.InputTuple;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomata;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomataBuilder;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.RPQEngine;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Semantics;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares the time to build the trees of an initial window with a bulk load against streaming the same window
+ * through the engine tuple by tuple, and checks that both report the same result pairs
+ */
+public class BulkLoadBenchmark {
+
+    private static final int VERTEX_COUNT = 5000;
+    private static final int TUPLE_COUNT = 10000;
+    private static final int REPETITIONS = 5;
+
+    public static void main(String[] args) {
+        BricsAutomata query = new BricsAutomataBuilder().fromSPARQL("ASK { ?x (<a>/<b>)+ ?y }");
+        query.finalize();
+
+        for (int deletionPercentage : new int[]{0, 20}) {
+            List<InputTuple<Integer, Integer, String>> window = randomWindow(deletionPercentage);
+            for (int threadCount : new int[]{1, 4}) {
+                long streamTime = Long.MAX_VALUE;
+                long bulkLoadTime = Long.MAX_VALUE;
+                Set<Long> streamedPairs = null;
+                Set<Long> bulkLoadedPairs = null;
+                // the first repetitions warm up the JIT, the fastest one is reported
+                for (int i = 0; i < REPETITIONS; i++) {
+                    RPQEngine<String> rpq = RPQEngine.createWindowedRPQEngine(query, 100, TUPLE_COUNT, TUPLE_COUNT, threadCount, Semantics.ARBITRARY);
+                    rpq.addMetricRegistry(new MetricRegistry());
+                    long startTime = System.nanoTime();
+                    for (InputTuple<Integer, Integer, String> inputTuple : window) {
+                        rpq.processEdge(inputTuple);
+                    }
+                    streamTime = Long.min(streamTime, System.nanoTime() - startTime);
+                    streamedPairs = ReferenceEvaluator.getPairs(rpq.getResults());
+                    rpq.shutDown();
+
+                    rpq = RPQEngine.createWindowedRPQEngine(query, 100, TUPLE_COUNT, TUPLE_COUNT, threadCount, Semantics.ARBITRARY);
+                    rpq.addMetricRegistry(new MetricRegistry());
+                    startTime = System.nanoTime();
+                    rpq.bulkLoad(window.iterator());
+                    bulkLoadTime = Long.min(bulkLoadTime, System.nanoTime() - startTime);
+                    bulkLoadedPairs = ReferenceEvaluator.getPairs(rpq.getResults());
+                    rpq.shutDown();
+                }
+
+                ReferenceEvaluator.assertSamePairs("bulk load with " + deletionPercentage + "% deletions and " + threadCount + " threads", streamedPairs, bulkLoadedPairs);
+                System.out.println(String.format("%d%% deletions, %d threads: streamed in %d ms, bulk loaded in %d ms, %d result pairs",
+                        deletionPercentage, threadCount, streamTime / 1_000_000, bulkLoadTime / 1_000_000, bulkLoadedPairs.size()));
+            }
+        }
+    }
+
+    private static List<InputTuple<Integer, Integer, String>> randomWindow(int deletionPercentage) {
+        Random random = new Random(42);
+        List<InputTuple<Integer, Integer, String>> insertions = new ArrayList<>();
+        List<InputTuple<Integer, Integer, String>> window = new ArrayList<>();
+        for (int i = 0; i < TUPLE_COUNT; i++) {
+            if (!insertions.isEmpty() && random.nextInt(100) < deletionPercentage) {
+                InputTuple<Integer, Integer, String> insertion = insertions.remove(random.nextInt(insertions.size()));
+                window.add(new InputTuple<>(insertion.getSource(), insertion.getTarget(), insertion.getLabel(), insertion.getTimestamp(), InputTuple.TupleType.DELETE));
+                continue;
+            }
+            InputTuple<Integer, Integer, String> insertion = new InputTuple<>(random.nextInt(VERTEX_COUNT), random.nextInt(VERTEX_COUNT), random.nextBoolean() ? "a" : "b", i);
+            insertions.add(insertion);
+            window.add(insertion);
+        }
+        return window;
+    }
+}
@@ -0,0 +1,86 @@
+package ca.uwaterloo.cs.streamingrpq;
+
+import ca.uwaterloo.cs.streamingrpq.input.InputTuple;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.RPQEngine;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomata;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomataBuilder;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Semantics;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.List;
+
+/**
+ * Checks the trees built by a bulk load against the reference evaluation of the loaded window, and that tuples
+ * streamed after the bulk load extend them as if the window was streamed. A bulk load into an engine that already
+ * processed an edge is rejected
+ */
+public class BulkLoadTest {
+
+    static String[] queryStrings = {
+            "ASK { ?x <a>/<b>* ?y }",
+            "ASK { ?x (<a>/<b>)/(<a>/<b>)* ?y }",
+            "ASK { ?x (<a>|<b>)*/<c> ?y }"
+    };
+
+    static final long UNBOUNDED_WINDOW = 1_000_000_000L;
+
+    public static void main(String[] args) {
+        String[] labels = {"a", "b", "c"};
+        int checkCount = 0;
+        for (String queryString : queryStrings) {
+            BricsAutomata query = new BricsAutomataBuilder().fromSPARQL(queryString);
+            query.finalize();
+            for (long seed = 1; seed <= 4; seed++) {
+                List<InputTuple<Integer, Integer, String>> stream = ReferenceEvaluator.randomStream(seed, 25, 3000, labels, false, false);
+                List<InputTuple<Integer, Integer, String>> window = stream.subList(0, 1500);
+                long maxTimestamp = window.get(window.size() - 1).getTimestamp();
+                for (int numOfThreads : new int[]{1, 4}) {
+                    String description = queryString + " seed " + seed + " threads " + numOfThreads;
+
+                    // edges older than the window size are discarded by the bulk load
+                    RPQEngine<String> windowedEngine = RPQEngine.createWindowedRPQEngine(query, 100, 300, 60, numOfThreads, Semantics.ARBITRARY);
+                    windowedEngine.addMetricRegistry(new MetricRegistry());
+                    ReferenceEvaluator reference = new ReferenceEvaluator();
+                    try {
+                        windowedEngine.bulkLoad(window.iterator());
+                        window.forEach(reference::processEdge);
+                        ReferenceEvaluator.assertSamePairs(description + " after bulk load",
+                                reference.evaluate(query, maxTimestamp - 300, Semantics.ARBITRARY), ReferenceEvaluator.getPairs(windowedEngine.getResults()));
+                        checkCount++;
+                    } finally {
+                        windowedEngine.shutDown();
+                    }
+
+                    // nothing expires in a window that spans the stream, so all results are still valid at the end
+                    RPQEngine<String> unboundedEngine = RPQEngine.createWindowedRPQEngine(query, 100, UNBOUNDED_WINDOW, UNBOUNDED_WINDOW, numOfThreads, Semantics.ARBITRARY);
+                    unboundedEngine.addMetricRegistry(new MetricRegistry());
+                    reference = new ReferenceEvaluator();
+                    try {
+                        unboundedEngine.bulkLoad(window.iterator());
+                        window.forEach(reference::processEdge);
+                        for (int i = window.size(); i < stream.size(); i++) {
+                            unboundedEngine.processEdge(stream.get(i));
+                            reference.processEdge(stream.get(i));
+                            if (i % 100 == 0) {
+                                ReferenceEvaluator.assertSamePairs(description + " after tuple " + i,
+                                        reference.evaluate(query, Long.MIN_VALUE, Semantics.ARBITRARY), ReferenceEvaluator.getPairs(unboundedEngine.getResults()));
+                                checkCount++;
+                            }
+                        }
+
+                        try {
+                            unboundedEngine.bulkLoad(window.iterator());
+                            throw new AssertionError(description + ": bulk load into a non-empty engine is accepted");
+                        } catch (IllegalStateException e) {
+                            // expected, the trees of the engine would be lost
+                        }
+                    } finally {
+                        unboundedEngine.shutDown();
+                    }
+                }
+            }
+        }
+
+        System.out.println(checkCount + " result sets match");
+    }
+}
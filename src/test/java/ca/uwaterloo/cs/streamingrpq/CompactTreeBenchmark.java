@@ -0,0 +1,52 @@
+package ca.uwaterloo.cs.streamingrpq;
+
+import ca.uwaterloo.cs.streamingrpq.input.InputTuple;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.RPQEngine;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.WindowedRPQ;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomata;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomataBuilder;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Semantics;
+import com.codahale.metrics.MetricRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Compares the live heap of the windowed engine with an object per tree node and with the trees stored in arrays.
+ * Trees of a+/c span most of the window, while the rare c edges keep the results small, so that the trees make up
+ * most of the live objects. Each run should be
+ * started in a fresh JVM, e.g. <code>java -Xmx4g CompactTreeBenchmark false</code> and
+ * <code>java -Xmx4g CompactTreeBenchmark true</code>
+ */
+public class CompactTreeBenchmark {
+
+    private static final int VERTEX_COUNT = 2000;
+    private static final int TUPLE_COUNT = 8000;
+
+    public static void main(String[] args) {
+        boolean compactTrees = Boolean.parseBoolean(args[0]);
+
+        BricsAutomata query = new BricsAutomataBuilder().fromSPARQL("ASK { ?x <a>+/<c> ?y }");
+        query.finalize();
+
+        WindowedRPQ<String, ?, ?> rpq = RPQEngine.createWindowedRPQEngine(query, VERTEX_COUNT, TUPLE_COUNT, TUPLE_COUNT, 1, Semantics.ARBITRARY);
+        rpq.setCompactTrees(compactTrees);
+        rpq.addMetricRegistry(new MetricRegistry());
+
+        System.gc();
+        long baseHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        Random random = new Random(42);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < TUPLE_COUNT; i++) {
+            rpq.processEdge(new InputTuple<>(random.nextInt(VERTEX_COUNT), random.nextInt(VERTEX_COUNT), random.nextInt(200) == 0 ? "c" : "a", i));
+        }
+        long elapsedTime = System.nanoTime() - startTime;
+
+        System.gc();
+        long liveHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() - baseHeap;
+        System.out.println(String.format("%s: %d ms, %d MB live heap, %d results", compactTrees ? "compact trees" : "object trees",
+                elapsedTime / 1_000_000, liveHeap >> 20, rpq.getResults().size()));
+        rpq.shutDown();
+    }
+}
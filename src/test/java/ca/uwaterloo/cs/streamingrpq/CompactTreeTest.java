@@ -0,0 +1,83 @@
+package ca.uwaterloo.cs.streamingrpq;
+
+import ca.uwaterloo.cs.streamingrpq.input.InputTuple;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.RPQEngine;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.WindowedRPQ;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomata;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomataBuilder;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Semantics;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.List;
+
+/**
+ * Checks the results of the engine with the spanning trees stored in arrays against the engine with an object per
+ * tree node under window expiry, and against a search of the product graph in a window that never expires so that
+ * every reported result is checked
+ */
+public class CompactTreeTest {
+
+    static String[] queryStrings = {
+            "ASK { ?x <a>/<b>* ?y }",
+            "ASK { ?x (<a>/<b>)/(<a>/<b>)* ?y }",
+            "ASK { ?x (<a>|<b>)*/<c> ?y }"
+    };
+
+    static final long UNBOUNDED_WINDOW = 1_000_000_000L;
+
+    public static void main(String[] args) {
+        String[] labels = {"a", "b", "c"};
+        int checkCount = 0;
+        for (String queryString : queryStrings) {
+            BricsAutomata query = new BricsAutomataBuilder().fromSPARQL(queryString);
+            query.finalize();
+            for (long seed = 1; seed <= 4; seed++) {
+                List<InputTuple<Integer, Integer, String>> stream = ReferenceEvaluator.randomStream(seed, 25, 3000, labels, false, false);
+                for (int numOfThreads : new int[]{1, 4}) {
+                    String description = queryString + " seed " + seed + " threads " + numOfThreads;
+
+                    WindowedRPQ<String, ?, ?> compactEngine = RPQEngine.createWindowedRPQEngine(query, 100, 300, 60, numOfThreads, Semantics.ARBITRARY);
+                    compactEngine.setCompactTrees(true);
+                    compactEngine.addMetricRegistry(new MetricRegistry());
+                    WindowedRPQ<String, ?, ?> objectEngine = RPQEngine.createWindowedRPQEngine(query, 100, 300, 60, numOfThreads, Semantics.ARBITRARY);
+                    objectEngine.addMetricRegistry(new MetricRegistry());
+                    try {
+                        for (int i = 0; i < stream.size(); i++) {
+                            compactEngine.processEdge(stream.get(i));
+                            objectEngine.processEdge(stream.get(i));
+                            if (i % 100 == 0) {
+                                ReferenceEvaluator.assertSamePairs(description + " windowed after tuple " + i,
+                                        ReferenceEvaluator.getPairs(objectEngine.getResults()), ReferenceEvaluator.getPairs(compactEngine.getResults()));
+                                checkCount++;
+                            }
+                        }
+                    } finally {
+                        compactEngine.shutDown();
+                        objectEngine.shutDown();
+                    }
+
+                    // nothing expires in a window that spans the stream, so the reported results must add up
+                    WindowedRPQ<String, ?, ?> unboundedEngine = RPQEngine.createWindowedRPQEngine(query, 100, UNBOUNDED_WINDOW, UNBOUNDED_WINDOW, numOfThreads, Semantics.ARBITRARY);
+                    unboundedEngine.setCompactTrees(true);
+                    unboundedEngine.addMetricRegistry(new MetricRegistry());
+                    ReferenceEvaluator reference = new ReferenceEvaluator();
+                    try {
+                        for (int i = 0; i < stream.size(); i++) {
+                            unboundedEngine.processEdge(stream.get(i));
+                            reference.processEdge(stream.get(i));
+                            if (i % 100 == 0) {
+                                ReferenceEvaluator.assertSamePairs(description + " after tuple " + i,
+                                        reference.evaluate(query, Long.MIN_VALUE, Semantics.ARBITRARY), ReferenceEvaluator.getPairs(unboundedEngine.getResults()));
+                                checkCount++;
+                            }
+                        }
+                    } finally {
+                        unboundedEngine.shutDown();
+                    }
+                }
+            }
+        }
+
+        System.out.println(checkCount + " result sets match");
+    }
+}
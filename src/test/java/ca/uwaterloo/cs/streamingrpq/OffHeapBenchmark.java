@@ -0,0 +1,74 @@
+package ca.uwaterloo.cs.streamingrpq;
+
+import ca.uwaterloo.cs.streamingrpq.input.InputTuple;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.RPQEngine;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomata;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomataBuilder;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Semantics;
+import com.codahale.metrics.MetricRegistry;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Compares the garbage collection pauses of the windowed engine with the product graph on the Java heap and off the
+ * heap. The window holds most of the edges of the stream, and the trees stay small so that the product graph makes
+ * up most of the live objects. Each run should be started in a fresh JVM with a fixed heap size, e.g.
+ * <code>java -Xms2g -Xmx2g OffHeapBenchmark false</code> and <code>java -Xms2g -Xmx2g OffHeapBenchmark true</code>
+ */
+public class OffHeapBenchmark {
+
+    private static final int VERTEX_COUNT = 1_000_000;
+    private static final int TUPLE_COUNT = 4_000_000;
+    private static final long WINDOW_SIZE = 3_000_000;
+    private static final long SLIDE_SIZE = 100_000;
+
+    private static long pauseCount = 0;
+    private static long totalPause = 0;
+    private static long maxPause = 0;
+
+    public static void main(String[] args) {
+        boolean offHeapProductGraph = Boolean.parseBoolean(args[0]);
+
+        // trees of c/a are rooted at the sources of the rare c edges and only hold a few nodes, but every edge is in
+        // the product graph
+        BricsAutomata query = new BricsAutomataBuilder().fromSPARQL("ASK { ?x <c>/<a> ?y }");
+        query.finalize();
+
+        RPQEngine<String> rpq = RPQEngine.createWindowedRPQEngine(query, VERTEX_COUNT, WINDOW_SIZE, SLIDE_SIZE, 1, Semantics.ARBITRARY, offHeapProductGraph);
+        rpq.addMetricRegistry(new MetricRegistry());
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                    long duration = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()).getGcInfo().getDuration();
+                    synchronized (OffHeapBenchmark.class) {
+                        pauseCount++;
+                        totalPause += duration;
+                        maxPause = Long.max(maxPause, duration);
+                    }
+                }
+            }, null, null);
+        }
+
+        Random random = new Random(42);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < TUPLE_COUNT; i++) {
+            rpq.processEdge(new InputTuple<>(random.nextInt(VERTEX_COUNT), random.nextInt(VERTEX_COUNT), random.nextInt(20) == 0 ? "c" : "a", i));
+        }
+        long elapsedTime = System.nanoTime() - startTime;
+
+        synchronized (OffHeapBenchmark.class) {
+            System.out.println(String.format("%s: %d ms, %d collections, %d ms total pause, %d ms max pause",
+                    offHeapProductGraph ? "off heap" : "on heap", elapsedTime / 1_000_000, pauseCount, totalPause, maxPause));
+        }
+        System.gc();
+        System.out.println(String.format("%d MB live heap, %d results", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20,
+                rpq.getResults().size()));
+        rpq.shutDown();
+    }
+}
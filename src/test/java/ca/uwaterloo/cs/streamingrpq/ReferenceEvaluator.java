@@ -0,0 +1,193 @@
+package ca.uwaterloo.cs.streamingrpq;
+
+import ca.uwaterloo.cs.streamingrpq.input.InputTuple;
+import ca.uwaterloo.cs.streamingrpq.stree.data.ResultPair;
+import ca.uwaterloo.cs.streamingrpq.stree.query.Automata;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Semantics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Brute force evaluation of a query over the edges of a window, that the tests compare the engines against.
+ * Result pairs are encoded as longs, with the source in the upper and the target in the lower 32 bits
+ */
+public class ReferenceEvaluator {
+
+    private final List<InputTuple<Integer, Integer, String>> edges = new ArrayList<>();
+
+    /**
+     * Inserts or deletes the edge. A deletion removes the parallel edge with the same timestamp, or the latest older
+     * one, as the product graph does
+     * @param inputTuple
+     */
+    public void processEdge(InputTuple<Integer, Integer, String> inputTuple) {
+        if (!inputTuple.isDeletion()) {
+            edges.add(inputTuple);
+            return;
+        }
+        InputTuple<Integer, Integer, String> deletedEdge = null;
+        for (InputTuple<Integer, Integer, String> edge : edges) {
+            if (!edge.getSource().equals(inputTuple.getSource()) || !edge.getTarget().equals(inputTuple.getTarget()) || !edge.getLabel().equals(inputTuple.getLabel())) {
+                continue;
+            }
+            if (edge.getTimestamp() == inputTuple.getTimestamp()) {
+                deletedEdge = edge;
+                break;
+            } else if (edge.getTimestamp() < inputTuple.getTimestamp() && (deletedEdge == null || edge.getTimestamp() > deletedEdge.getTimestamp())) {
+                deletedEdge = edge;
+            }
+        }
+        edges.remove(deletedEdge);
+    }
+
+    /**
+     * @param automata
+     * @param windowStart edges with a timestamp larger than the window start are in the window
+     * @param semantics
+     * @return pairs of vertices connected by a path in the window whose labels are accepted by the automata,
+     * pairs of a vertex with itself are omitted under simple path semantics
+     */
+    public Set<Long> evaluate(Automata<String> automata, long windowStart, Semantics semantics) {
+        Map<Integer, List<InputTuple<Integer, Integer, String>>> forwardEdges = new HashMap<>();
+        for (InputTuple<Integer, Integer, String> edge : edges) {
+            if (edge.getTimestamp() > windowStart) {
+                forwardEdges.computeIfAbsent(edge.getSource(), key -> new ArrayList<>()).add(edge);
+            }
+        }
+        Set<Long> results = new TreeSet<>();
+        for (int source : forwardEdges.keySet()) {
+            if (semantics.equals(Semantics.ARBITRARY)) {
+                searchArbitrary(automata, forwardEdges, source, results);
+            } else {
+                Set<Integer> pathVertices = new HashSet<>();
+                pathVertices.add(source);
+                searchSimple(automata, forwardEdges, source, source, 0, pathVertices, results);
+            }
+        }
+        return results;
+    }
+
+    private static void searchArbitrary(Automata<String> automata, Map<Integer, List<InputTuple<Integer, Integer, String>>> forwardEdges, int source, Set<Long> results) {
+        Set<Long> visited = new HashSet<>();
+        Queue<long[]> queue = new ArrayDeque<>();
+        queue.add(new long[]{source, 0});
+        while (!queue.isEmpty()) {
+            long[] node = queue.poll();
+            for (InputTuple<Integer, Integer, String> edge : forwardEdges.getOrDefault((int) node[0], new ArrayList<>())) {
+                Integer targetState = automata.getTransition(edge.getLabel()).get((int) node[1]);
+                if (targetState == null) {
+                    continue;
+                }
+                if (automata.isFinalState(targetState)) {
+                    results.add(pair(source, edge.getTarget()));
+                }
+                if (visited.add(pair(edge.getTarget(), targetState))) {
+                    queue.add(new long[]{edge.getTarget(), targetState});
+                }
+            }
+        }
+    }
+
+    private static void searchSimple(Automata<String> automata, Map<Integer, List<InputTuple<Integer, Integer, String>>> forwardEdges, int source, int vertex, int state, Set<Integer> pathVertices, Set<Long> results) {
+        for (InputTuple<Integer, Integer, String> edge : forwardEdges.getOrDefault(vertex, new ArrayList<>())) {
+            Integer targetState = automata.getTransition(edge.getLabel()).get(state);
+            if (targetState == null || !pathVertices.add(edge.getTarget())) {
+                continue;
+            }
+            if (automata.isFinalState(targetState)) {
+                results.add(pair(source, edge.getTarget()));
+            }
+            searchSimple(automata, forwardEdges, source, edge.getTarget(), targetState, pathVertices, results);
+            pathVertices.remove(edge.getTarget());
+        }
+    }
+
+    public static long pair(int source, int target) {
+        return ((long) source << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param results all results reported by an engine
+     * @return pairs with more reported insertions than deletions, which are the valid results under arbitrary path
+     * semantics as long as no tree node expires
+     */
+    public static Set<Long> getPairs(Collection<ResultPair<Integer>> results) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (ResultPair<Integer> result : results) {
+            counts.merge(pair(result.getSource(), result.getTarget()), result.isDeletion() ? -1 : 1, Integer::sum);
+        }
+        Set<Long> pairs = new TreeSet<>();
+        counts.forEach((pair, count) -> {
+            if (count > 0) {
+                pairs.add(pair);
+            }
+        });
+        return pairs;
+    }
+
+    /**
+     * Random stream over the given labels, with a tuple per timestamp
+     * @param seed
+     * @param vertexCount
+     * @param tupleCount
+     * @param labels
+     * @param withDeletions every sixth tuple on average deletes a previous edge, with its timestamp or the current one
+     * @param withParallelEdges every fourth edge on average is inserted twice with the same timestamp
+     * @return
+     */
+    public static List<InputTuple<Integer, Integer, String>> randomStream(long seed, int vertexCount, int tupleCount, String[] labels, boolean withDeletions, boolean withParallelEdges) {
+        Random random = new Random(seed);
+        List<InputTuple<Integer, Integer, String>> insertions = new ArrayList<>();
+        List<InputTuple<Integer, Integer, String>> stream = new ArrayList<>();
+        for (int i = 0; i < tupleCount; i++) {
+            if (withDeletions && i > 10 && random.nextInt(6) == 0) {
+                InputTuple<Integer, Integer, String> insertion = insertions.get(random.nextInt(insertions.size()));
+                long timestamp = random.nextBoolean() ? insertion.getTimestamp() : i;
+                stream.add(new InputTuple<>(insertion.getSource(), insertion.getTarget(), insertion.getLabel(), timestamp, InputTuple.TupleType.DELETE));
+                continue;
+            }
+            InputTuple<Integer, Integer, String> insertion = new InputTuple<>(random.nextInt(vertexCount), random.nextInt(vertexCount), labels[random.nextInt(labels.length)], i);
+            insertions.add(insertion);
+            stream.add(insertion);
+            if (withParallelEdges && random.nextInt(4) == 0) {
+                stream.add(new InputTuple<>(insertion.getSource(), insertion.getTarget(), insertion.getLabel(), i));
+            }
+        }
+        return stream;
+    }
+
+    /**
+     * Fails the test with the pairs that differ between the engine and the expected results
+     * @param description
+     * @param expected
+     * @param actual
+     */
+    public static void assertSamePairs(String description, Set<Long> expected, Set<Long> actual) {
+        if (expected.equals(actual)) {
+            return;
+        }
+        Set<Long> missing = new TreeSet<>(expected);
+        missing.removeAll(actual);
+        Set<Long> extra = new TreeSet<>(actual);
+        extra.removeAll(expected);
+        throw new AssertionError(description + ": missing " + toString(missing) + ", unexpected " + toString(extra));
+    }
+
+    private static String toString(Set<Long> pairs) {
+        StringBuilder builder = new StringBuilder();
+        for (long pair : pairs) {
+            builder.append("(").append(pair >> 32).append(" --> ").append((int) pair).append(")");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package ca.uwaterloo.cs.streamingrpq;
+
+import ca.uwaterloo.cs.streamingrpq.input.InputTuple;
+import ca.uwaterloo.cs.streamingrpq.stree.data.simple.SpanningTreeRSPQ;
+import ca.uwaterloo.cs.streamingrpq.stree.data.simple.TreeNodeRSPQ;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.WindowedRPQ;
+import ca.uwaterloo.cs.streamingrpq.stree.query.Automata;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomata;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomataBuilder;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Semantics;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Checks the results of simple path semantics under explicit deletions against the enumeration of all simple paths
+ * in the window. Deletions remove marked and unmarked nodes, and the unmarked nodes are reconnected or extended again
+ */
+public class SimplePathDeletionTest {
+
+    static String queryString = "ASK { ?x <a>/<b>* ?y }";
+
+    static final long WINDOW_SIZE = 60;
+    static final long SLIDE_SIZE = 15;
+
+    public static void main(String[] args) {
+        BricsAutomata query = new BricsAutomataBuilder().fromSPARQL(queryString);
+        query.finalize();
+
+        String[] labels = {"a", "b"};
+        int checkCount = 0;
+        for (long seed = 1; seed <= 6; seed++) {
+            List<InputTuple<Integer, Integer, String>> stream = ReferenceEvaluator.randomStream(seed, 8, 300, labels, true, false);
+
+            InspectedRPQ rspqEngine = new InspectedRPQ(query);
+            checkCount += rspqEngine.run("seed " + seed, stream);
+        }
+
+        System.out.println(checkCount + " windows match");
+    }
+
+    /**
+     * Exposes the spanning trees of the engine, whose nodes in final states are the results of the window
+     */
+    private static class InspectedRPQ extends WindowedRPQ<String, SpanningTreeRSPQ<Integer>, TreeNodeRSPQ<Integer>> {
+
+        private final Automata<String> query;
+
+        private InspectedRPQ(Automata<String> query) {
+            super(query, 100, WINDOW_SIZE, SLIDE_SIZE, 1, Semantics.SIMPLE);
+            this.query = query;
+            addMetricRegistry(new MetricRegistry());
+        }
+
+        private int run(String description, List<InputTuple<Integer, Integer, String>> stream) {
+            ReferenceEvaluator reference = new ReferenceEvaluator();
+            // same slide condition as the engine, edges up to the window start are expired at each slide
+            long lastExpiry = 0;
+            long windowStart = -1;
+            try {
+                for (int i = 0; i < stream.size(); i++) {
+                    InputTuple<Integer, Integer, String> inputTuple = stream.get(i);
+                    if (inputTuple.getTimestamp() - SLIDE_SIZE >= lastExpiry && inputTuple.getTimestamp() >= WINDOW_SIZE) {
+                        if (System.getProperty("slides") != null) ReferenceEvaluator.assertSamePairs(description + " before tuple " + i + " at window start " + windowStart,
+                            reference.evaluate(query, windowStart, Semantics.SIMPLE), getPairs());
+                        windowStart = inputTuple.getTimestamp() - WINDOW_SIZE;
+                        lastExpiry = inputTuple.getTimestamp();
+                    }
+                    processEdge(inputTuple);
+                    reference.processEdge(inputTuple);
+                    if (System.getProperty("slides") == null) ReferenceEvaluator.assertSamePairs(description + " after tuple " + i + " at window start " + windowStart,
+                            reference.evaluate(query, windowStart, Semantics.SIMPLE), getPairs());
+                }
+            } finally {
+                shutDown();
+            }
+            return stream.size();
+        }
+
+        /**
+         * @return pairs of the root of each tree with its nodes in final states, reached from the root through the
+         * sibling lists
+         */
+        private Set<Long> getPairs() {
+            Set<Long> pairs = new TreeSet<>();
+            for (SpanningTreeRSPQ<Integer> tree : delta.getTrees()) {
+                Queue<TreeNodeRSPQ<Integer>> queue = new ArrayDeque<>();
+                queue.add(tree.getRootNode());
+                while (!queue.isEmpty()) {
+                    TreeNodeRSPQ<Integer> node = queue.remove();
+                    if (node != tree.getRootNode() && query.isFinalState(node.getState()) && !node.getVertex().equals(tree.getRootVertex())) {
+                        pairs.add(ReferenceEvaluator.pair(tree.getRootVertex(), node.getVertex()));
+                    }
+                    for (TreeNodeRSPQ<Integer> child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                        queue.add(child);
+                    }
+                }
+            }
+            return pairs;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ca.uwaterloo.cs.streamingrpq;
+
+import ca.uwaterloo.cs.streamingrpq.input.InputTuple;
+import ca.uwaterloo.cs.streamingrpq.stree.data.AbstractSpanningTree;
+import ca.uwaterloo.cs.streamingrpq.stree.data.AbstractTreeNode;
+import ca.uwaterloo.cs.streamingrpq.stree.data.arbitrary.SpanningTreeRAPQ;
+import ca.uwaterloo.cs.streamingrpq.stree.data.arbitrary.TreeNodeRAPQ;
+import ca.uwaterloo.cs.streamingrpq.stree.engine.WindowedRPQ;
+import ca.uwaterloo.cs.streamingrpq.stree.query.Automata;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomata;
+import ca.uwaterloo.cs.streamingrpq.stree.query.BricsAutomataBuilder;
+import ca.uwaterloo.cs.streamingrpq.stree.util.Semantics;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Checks the internal structure of the spanning trees after every tuple of random streams: the sibling lists of each
+ * node link exactly the nodes whose parent it is, and every node of a tree is reachable from its root through them
+ */
+public class SpanningTreeInvariantTest {
+
+    static String arbitraryQueryString = "ASK { ?x (<a>|<b>)*/<c> ?y }";
+
+    public static void main(String[] args) {
+        BricsAutomata arbitraryQuery = new BricsAutomataBuilder().fromSPARQL(arbitraryQueryString);
+        arbitraryQuery.finalize();
+
+        int tupleCount = 0;
+        for (long seed = 1; seed <= 4; seed++) {
+            List<InputTuple<Integer, Integer, String>> arbitraryStream = ReferenceEvaluator.randomStream(seed, 25, 2000, new String[]{"a", "b", "c"}, false, true);
+            for (int threadCount : new int[]{1, 4}) {
+                InspectedRPQ<SpanningTreeRAPQ<Integer>, TreeNodeRAPQ<Integer>> rapqEngine = new InspectedRPQ<>(arbitraryQuery, 300, 60, threadCount, Semantics.ARBITRARY);
+                rapqEngine.run("seed " + seed + " arbitrary with " + threadCount + " threads", arbitraryStream);
+                tupleCount += arbitraryStream.size();
+
+                InspectedRPQ<SpanningTreeRAPQ<Integer>, TreeNodeRAPQ<Integer>> compactEngine = new InspectedRPQ<>(arbitraryQuery, 300, 60, threadCount, Semantics.ARBITRARY);
+                compactEngine.setCompactTrees(true);
+                compactEngine.run("seed " + seed + " compact with " + threadCount + " threads", arbitraryStream);
+                tupleCount += arbitraryStream.size();
+            }
+        }
+
+        System.out.println(tupleCount + " tuples keep the tree invariants");
+    }
+
+    /**
+     * Exposes the spanning trees of the engine to the checks
+     */
+    private static class InspectedRPQ<T extends AbstractSpanningTree<Integer, T, N>, N extends AbstractTreeNode<Integer, T, N>> extends WindowedRPQ<String, T, N> {
+
+        private InspectedRPQ(Automata<String> query, long windowSize, long slideSize, int numOfThreads, Semantics semantics) {
+            super(query, 100, windowSize, slideSize, numOfThreads, semantics);
+            addMetricRegistry(new MetricRegistry());
+        }
+
+        private void run(String description, List<InputTuple<Integer, Integer, String>> stream) {
+            try {
+                for (int i = 0; i < stream.size(); i++) {
+                    processEdge(stream.get(i));
+                    assertTrees(description + " after tuple " + i);
+                }
+            } finally {
+                shutDown();
+            }
+        }
+
+        private void assertTrees(String description) {
+            for (T tree : delta.getTrees()) {
+                String treeDescription = description + " tree " + tree.getRootVertex();
+
+                // each node is linked into the sibling list of its parent exactly once, so a traversal of the sibling
+                // lists from the root visits every node of the tree once
+                int nodeCount = 0;
+                Queue<N> queue = new ArrayDeque<>();
+                queue.add(tree.getRootNode());
+                while (!queue.isEmpty()) {
+                    N node = queue.remove();
+                    if (++nodeCount > tree.getSize()) {
+                        throw new AssertionError(treeDescription + ": sibling lists have a cycle");
+                    }
+                    int nodeChildCount = 0;
+                    for (N child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                        if (!node.equals(child.getParent())) {
+                            throw new AssertionError(treeDescription + ": " + child + " is a child of " + node + " but its parent is " + child.getParent());
+                        }
+                        if (++nodeChildCount > tree.getSize()) {
+                            throw new AssertionError(treeDescription + ": sibling list of " + node + " has a cycle");
+                        }
+                        queue.add(child);
+                    }
+                    if (node.getChildren().size() != nodeChildCount) {
+                        throw new AssertionError(treeDescription + ": " + node.getChildren().size() + " children of " + node + " in the view, " + nodeChildCount + " in the sibling list");
+                    }
+                }
+                if (nodeCount != tree.getSize()) {
+                    throw new AssertionError(treeDescription + ": " + nodeCount + " nodes in sibling lists, " + tree.getSize() + " nodes in the tree");
+                }
+            }
+        }
+    }
+}